@@ -0,0 +1,46 @@
+package com.example.healthcheck.client;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.net.URI;
+
+/**
+ * lb://{bankId}/... 形式URI的解析工具
+ */
+public class LoadBalancedUris {
+    public static final String SCHEME = "lb";
+
+    public static boolean isLoadBalanced(URI uri) {
+        return SCHEME.equalsIgnoreCase(uri.getScheme());
+    }
+
+    public static String getBankId(URI uri) {
+        return uri.getHost() != null ? uri.getHost() : uri.getAuthority();
+    }
+
+    /**
+     * 按IP展开的端点需要携带原域名的Host头，返回设置了Host的请求头副本；hostHeader为null时返回原请求头
+     */
+    public static HttpHeaders withHostHeader(HttpHeaders headers, String hostHeader) {
+        if (hostHeader == null) {
+            return headers;
+        }
+        HttpHeaders copy = new HttpHeaders();
+        copy.putAll(headers);
+        copy.set(HttpHeaders.HOST, hostHeader);
+        return copy;
+    }
+
+    /**
+     * 将lb://{bankId}/path?query 中的路径和参数拼接到选中的资方URL上
+     */
+    public static URI reconstruct(String url, URI original) {
+        return UriComponentsBuilder.fromHttpUrl(url)
+                .path(original.getRawPath())
+                .query(original.getRawQuery())
+                .fragment(original.getRawFragment())
+                .build(true)
+                .toUri();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,71 @@
+package com.example.healthcheck.client;
+
+import com.example.healthcheck.service.BankUrlManager;
+import com.example.healthcheck.service.LoadBalancerService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * WebClient过滤器：将 lb://{bankId}/... 解析为资方健康URL，并回写请求耗时与结果。
+ * 选取URL只读取内存中的路由快照，不会阻塞响应式线程
+ */
+@Component
+public class LoadBalancerExchangeFilterFunction implements ExchangeFilterFunction {
+
+    private final LoadBalancerService loadBalancerService;
+    private final BankUrlManager bankUrlManager;
+
+    public LoadBalancerExchangeFilterFunction(LoadBalancerService loadBalancerService, BankUrlManager bankUrlManager) {
+        this.loadBalancerService = loadBalancerService;
+        this.bankUrlManager = bankUrlManager;
+    }
+
+    @Override
+    public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+        URI originalUri = request.url();
+        if (!LoadBalancedUris.isLoadBalanced(originalUri)) {
+            return next.exchange(request);
+        }
+
+        // 每次订阅（含retry）重新选取URL
+        return Mono.defer(() -> {
+            String bankId = LoadBalancedUris.getBankId(originalUri);
+            String url = loadBalancerService.getNextHealthyUrlForBank(bankId);
+            if (url == null) {
+                return Mono.error(new IllegalStateException("资方 " + bankId + " 无可用URL"));
+            }
+            String hostHeader = bankUrlManager.getHostHeader(url);
+            ClientRequest targetRequest = ClientRequest.from(request)
+                    .url(LoadBalancedUris.reconstruct(url, originalUri))
+                    .headers(headers -> {
+                        if (hostHeader != null) {
+                            headers.set(HttpHeaders.HOST, hostHeader);
+                        }
+                    })
+                    .build();
+
+            long startTime = System.currentTimeMillis();
+            // 每次请求只记录一次，响应后的取消不再计入
+            AtomicBoolean recorded = new AtomicBoolean();
+            Consumer<Boolean> recordResult = success -> {
+                if (recorded.compareAndSet(false, true)) {
+                    loadBalancerService.recordRequestResult(url, System.currentTimeMillis() - startTime, success);
+                }
+            };
+            return next.exchange(targetRequest)
+                    .doOnNext(response -> recordResult.accept(response.rawStatusCode() < 500))
+                    .doOnError(e -> recordResult.accept(false))
+                    // 调用方超时等原因取消的请求按失败计入
+                    .doOnCancel(() -> recordResult.accept(false));
+        });
+    }
+}
\ No newline at end of file
@@ -0,0 +1,66 @@
+package com.example.healthcheck.client;
+
+import com.example.healthcheck.service.BankUrlManager;
+import com.example.healthcheck.service.LoadBalancerService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.client.support.HttpRequestWrapper;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.URI;
+
+/**
+ * RestTemplate拦截器：将 lb://{bankId}/... 解析为资方健康URL，并回写请求耗时与结果
+ */
+@Component
+public class LoadBalancerInterceptor implements ClientHttpRequestInterceptor {
+
+    private final LoadBalancerService loadBalancerService;
+    private final BankUrlManager bankUrlManager;
+
+    public LoadBalancerInterceptor(LoadBalancerService loadBalancerService, BankUrlManager bankUrlManager) {
+        this.loadBalancerService = loadBalancerService;
+        this.bankUrlManager = bankUrlManager;
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
+        URI originalUri = request.getURI();
+        if (!LoadBalancedUris.isLoadBalanced(originalUri)) {
+            return execution.execute(request, body);
+        }
+
+        String bankId = LoadBalancedUris.getBankId(originalUri);
+        String url = loadBalancerService.getNextHealthyUrlForBank(bankId);
+        if (url == null) {
+            throw new IOException("资方 " + bankId + " 无可用URL");
+        }
+        URI targetUri = LoadBalancedUris.reconstruct(url, originalUri);
+        HttpHeaders targetHeaders = LoadBalancedUris.withHostHeader(request.getHeaders(), bankUrlManager.getHostHeader(url));
+
+        long startTime = System.currentTimeMillis();
+        try {
+            ClientHttpResponse response = execution.execute(new HttpRequestWrapper(request) {
+                @Override
+                public URI getURI() {
+                    return targetUri;
+                }
+
+                @Override
+                public HttpHeaders getHeaders() {
+                    return targetHeaders;
+                }
+            }, body);
+            loadBalancerService.recordRequestResult(url, System.currentTimeMillis() - startTime,
+                    response.getRawStatusCode() < 500);
+            return response;
+        } catch (IOException e) {
+            loadBalancerService.recordRequestResult(url, System.currentTimeMillis() - startTime, false);
+            throw e;
+        }
+    }
+}
\ No newline at end of file
@@ -22,6 +22,8 @@ public class BankUrlConfig {
     @Data
     public static class CommonConfig {
         private List<String> baseUrls;
+        private List<Integer> priorities; // 优先级列表，与baseUrls一一对应，0为最高
+        private List<String> localities; // 机房/区域标签列表，与baseUrls一一对应
     }
 
     @Data
@@ -30,6 +32,11 @@ public class BankUrlConfig {
         private String path; // 新增：资方专属路径
         private List<UrlConfig> urls = new ArrayList<>();
         private List<Integer> weights; // 新增：权重列表
+        private String probeType = "http"; // 探测方式：http完整请求，tcp仅建立TCP连接
+        private Integer poolLimit; // 探测连接池上限，未配置时使用health.bulkhead默认值
+        private Integer routerLimit; // 探测单路由连接上限
+        private Integer probeConcurrency; // 探测并发数
+        private boolean expandIps = false; // 是否将域名URL按解析出的IP展开为多个端点分别探测和负载，仅支持http
 
         // 获取所有URL字符串
         public List<String> getUrlStrings() {
@@ -41,6 +48,8 @@ public class BankUrlConfig {
     public static class UrlConfig {
         private String url;
         private int weight = 1; // URL级别的权重
+        private Integer priority; // 优先级，0为最高，未配置时按机房标签推断
+        private String locality; // 机房/区域标签
     }
 
     @PostConstruct
@@ -70,6 +79,15 @@ public class BankUrlConfig {
                                 .path(config.getPath())
                                 .toUriString());
                         urlConfig.setWeight(i < weights.size() ? weights.get(i) : 1);
+                        // 优先级与机房标签跟随baseUrl
+                        List<Integer> priorities = common.getPriorities();
+                        if (priorities != null && i < priorities.size()) {
+                            urlConfig.setPriority(priorities.get(i));
+                        }
+                        List<String> localities = common.getLocalities();
+                        if (localities != null && i < localities.size()) {
+                            urlConfig.setLocality(localities.get(i));
+                        }
                         return urlConfig;
                     })
                     .collect(Collectors.toList()));
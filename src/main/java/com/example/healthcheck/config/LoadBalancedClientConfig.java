@@ -0,0 +1,64 @@
+package com.example.healthcheck.config;
+
+import com.example.healthcheck.client.LoadBalancerExchangeFilterFunction;
+import com.example.healthcheck.client.LoadBalancerInterceptor;
+import com.example.healthcheck.service.DnsCache;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.converter.StringHttpMessageConverter;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 支持 lb://{bankId}/... 地址的客户端
+ */
+@Configuration
+public class LoadBalancedClientConfig {
+
+    // 业务请求使用独立的连接池和超时，不与健康探测争用连接，也不套用探测的短超时
+    @Bean
+    public HttpClient lbHttpClient(DnsCache dnsCache,
+                                   @Value("${loadbalancer.client.pool-limit}") int poolLimit,
+                                   @Value("${loadbalancer.client.router-limit}") int routerLimit,
+                                   @Value("${loadbalancer.client.connection-timeout}") int connectionTimeout,
+                                   @Value("${loadbalancer.client.socket-timeout}") int socketTimeout,
+                                   @Value("${loadbalancer.client.connection-request-timeout}") int connectionRequestTimeout) {
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager(
+                HealthCheckConfig.socketFactoryRegistry(), dnsCache);
+        connectionManager.setMaxTotal(poolLimit);
+        connectionManager.setDefaultMaxPerRoute(routerLimit);
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout(connectionTimeout)
+                .setSocketTimeout(socketTimeout)
+                .setConnectionRequestTimeout(connectionRequestTimeout)
+                .build();
+        return HttpClientBuilder.create()
+                .setDefaultRequestConfig(requestConfig)
+                .setConnectionManager(connectionManager)
+                .build();
+    }
+
+    @Bean
+    public RestTemplate lbRestTemplate(@Qualifier("lbHttpClient") HttpClient lbHttpClient,
+                                       LoadBalancerInterceptor loadBalancerInterceptor) {
+        RestTemplate restTemplate = new RestTemplate(new HttpComponentsClientHttpRequestFactory(lbHttpClient));
+        restTemplate.getMessageConverters().set(1, new StringHttpMessageConverter(StandardCharsets.UTF_8));
+        restTemplate.getInterceptors().add(loadBalancerInterceptor);
+        return restTemplate;
+    }
+
+    @Bean
+    public WebClient lbWebClient(WebClient.Builder webClientBuilder,
+                                 LoadBalancerExchangeFilterFunction loadBalancerExchangeFilterFunction) {
+        return webClientBuilder.filter(loadBalancerExchangeFilterFunction).build();
+    }
+}
\ No newline at end of file
@@ -1,9 +1,13 @@
 package com.example.healthcheck.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
 
+import java.util.concurrent.ThreadPoolExecutor;
+
 @Configuration
 public class SchedulerConfig {
     @Bean
@@ -13,4 +17,18 @@ public class SchedulerConfig {
         scheduler.setThreadNamePrefix("health-check");
         return scheduler;
     }
+
+    // 负载均衡请求执行线程池（重试、对冲请求）
+    @Bean
+    public ThreadPoolTaskExecutor requestExecutor(@Value("${loadbalancer.executor.pool-size}") int poolSize,
+                                                  @Value("${loadbalancer.executor.queue-capacity}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        // 有界队列，队列满时拒绝新请求（对冲请求直接放弃），避免过载时排队请求继续堆积
+        executor.setQueueCapacity(queueCapacity);
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.setThreadNamePrefix("lb-request");
+        return executor;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,38 @@
+package com.example.healthcheck.controller;
+
+import com.example.healthcheck.dto.HealthHistoryPoint;
+import com.example.healthcheck.service.HealthHistoryService;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@RestController
+@RequestMapping("/health")
+public class HealthHistoryController {
+
+    private final HealthHistoryService healthHistoryService;
+
+    public HealthHistoryController(HealthHistoryService healthHistoryService) {
+        this.healthHistoryService = healthHistoryService;
+    }
+
+    /**
+     * 查询URL或资方的可用率与耗时历史，时间格式 yyyy-MM-dd HH:mm:ss
+     */
+    @GetMapping("/history")
+    public List<HealthHistoryPoint> history(@RequestParam(required = false) String url,
+                                            @RequestParam(required = false) String bankId,
+                                            @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime from,
+                                            @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime to,
+                                            @RequestParam(required = false) String resolution) {
+        if (url == null && bankId == null) {
+            throw new IllegalArgumentException("url和bankId至少指定一个");
+        }
+        return healthHistoryService.query(url, bankId, from, to, resolution);
+    }
+}
\ No newline at end of file
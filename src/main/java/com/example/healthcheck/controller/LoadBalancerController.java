@@ -0,0 +1,61 @@
+package com.example.healthcheck.controller;
+
+import com.example.healthcheck.config.BankUrlConfig;
+import com.example.healthcheck.dto.BankRoutingSnapshot;
+import com.example.healthcheck.dto.HealthScore;
+import com.example.healthcheck.service.BankUrlManager;
+import com.example.healthcheck.service.HealthScoreManager;
+import com.example.healthcheck.service.LoadBalancerService;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+@RestController
+@RequestMapping("/loadbalancer")
+public class LoadBalancerController {
+
+    private final BankUrlManager bankUrlManager;
+    private final HealthScoreManager healthScoreManager;
+    private final LoadBalancerService loadBalancerService;
+
+    public LoadBalancerController(BankUrlManager bankUrlManager, HealthScoreManager healthScoreManager,
+                                  LoadBalancerService loadBalancerService) {
+        this.bankUrlManager = bankUrlManager;
+        this.healthScoreManager = healthScoreManager;
+        this.loadBalancerService = loadBalancerService;
+    }
+
+    /**
+     * 查询资方各URL的健康评分
+     */
+    @GetMapping("/scores")
+    public List<HealthScore> scores(@RequestParam String bankId) {
+        getBankConfig(bankId);
+        return bankUrlManager.getBankUrls(bankId).stream()
+                .map(healthScoreManager::getHealthScore)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * 查询资方当前路由快照（优先级分层与流量比例）
+     */
+    @GetMapping("/snapshot")
+    public BankRoutingSnapshot snapshot(@RequestParam String bankId) {
+        getBankConfig(bankId);
+        return loadBalancerService.getRoutingSnapshot(bankId);
+    }
+
+    private BankUrlConfig.BankConfig getBankConfig(String bankId) {
+        BankUrlConfig.BankConfig config = bankUrlManager.getBankConfig(bankId);
+        if (config == null) {
+            throw new IllegalArgumentException("资方不存在: " + bankId);
+        }
+        return config;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,28 @@
+package com.example.healthcheck.controller;
+
+import com.example.healthcheck.dto.BulkheadMetrics;
+import com.example.healthcheck.service.ProbeBulkheadManager;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/health")
+public class ProbeBulkheadController {
+
+    private final ProbeBulkheadManager probeBulkheadManager;
+
+    public ProbeBulkheadController(ProbeBulkheadManager probeBulkheadManager) {
+        this.probeBulkheadManager = probeBulkheadManager;
+    }
+
+    /**
+     * 查询各资方探测舱壁的排队、连接池占用和等待耗时
+     */
+    @GetMapping("/bulkheads")
+    public List<BulkheadMetrics> bulkheads() {
+        return probeBulkheadManager.getMetrics();
+    }
+}
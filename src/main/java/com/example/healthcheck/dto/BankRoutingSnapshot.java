@@ -0,0 +1,46 @@
+package com.example.healthcheck.dto;
+
+import lombok.Value;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 资方路由快照：每轮健康检查后按优先级分层计算一次，选取URL时直接使用。
+ * 快照发布后被并发读取，字段和列表均不可修改
+ */
+@Value
+public class BankRoutingSnapshot {
+    String bankId;
+    List<PriorityTier> tiers; // 按优先级升序
+    List<String> healthyUrls; // 全部健康URL
+
+    public BankRoutingSnapshot(String bankId, List<PriorityTier> tiers, List<String> healthyUrls) {
+        this.bankId = bankId;
+        this.tiers = Collections.unmodifiableList(new ArrayList<>(tiers));
+        this.healthyUrls = Collections.unmodifiableList(new ArrayList<>(healthyUrls));
+    }
+
+    public boolean isEmpty() {
+        return healthyUrls.isEmpty();
+    }
+
+    @Value
+    public static class PriorityTier {
+        int priority;
+        List<String> healthyUrls;
+        int totalCount; // 该层配置的URL总数
+        double loadPercent; // 分配到该层的流量百分比
+        double cumulativeLoadPercent; // 累计流量百分比，用于按比例选层
+
+        public PriorityTier(int priority, List<String> healthyUrls, int totalCount,
+                            double loadPercent, double cumulativeLoadPercent) {
+            this.priority = priority;
+            this.healthyUrls = Collections.unmodifiableList(new ArrayList<>(healthyUrls));
+            this.totalCount = totalCount;
+            this.loadPercent = loadPercent;
+            this.cumulativeLoadPercent = cumulativeLoadPercent;
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.healthcheck.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class BulkheadMetrics {
+    private String bankId;
+    private String bankName;
+    private boolean roundInFlight; // 是否有未完成的探测轮次
+    private int probeConcurrency; // 探测并发上限
+    private int activeProbes; // 执行中的探测
+    private int queuedProbes; // 排队中的探测
+    private int queueCapacity; // 探测队列容量
+    private long rejectedProbes; // 队列已满被丢弃的探测数
+    private long queueWaitP99; // 排队等待耗时P99(毫秒)
+    private int poolMax; // 连接池上限
+    private int poolLeased; // 已借出连接
+    private int poolPending; // 等待获取连接的请求
+    private int poolAvailable; // 空闲连接
+    private long leaseWaitP99; // 获取连接等待耗时P99(毫秒)
+}
\ No newline at end of file
@@ -0,0 +1,21 @@
+package com.example.healthcheck.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+public class HealthHistoryPoint {
+    private LocalDateTime time; // 汇总周期起点
+    private int count; // 探测次数
+    private int errors; // 非UP次数
+    private double availability; // 可用率
+    private int minLatency; // 毫秒
+    private int maxLatency;
+    private long avgLatency;
+    private long p50Latency; // 分位数为草图估算值
+    private long p95Latency;
+    private long p99Latency;
+}
\ No newline at end of file
@@ -0,0 +1,19 @@
+package com.example.healthcheck.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class HealthScore {
+    private String url;
+    private String lastStatus; // 最近一次探测状态
+    private double statusFactor; // 状态系数：UP为1，ERROR按配置折算
+    private double errorRatio; // 窗口内非UP比例
+    private long medianLatency; // 窗口内探测耗时中位数(毫秒)
+    private double latencyFactor; // 相对资方内最快URL的耗时系数
+    private double requestFailureRatio; // 业务请求窗口内失败比例，样本不足时为0
+    private long requestMedianLatency; // 业务请求耗时中位数(毫秒)，样本不足时为-1
+    private double requestLatencyFactor; // 相对资方内最快URL的业务请求耗时系数
+    private double score; // 综合评分 = 状态系数 * (1 - 错误比例) * 耗时系数 * (1 - 请求失败比例) * 请求耗时系数
+}
\ No newline at end of file
@@ -0,0 +1,46 @@
+package com.example.healthcheck.dto;
+
+import com.example.healthcheck.utils.RollingPercentile;
+
+/**
+ * 单个URL的业务请求统计（被动健康数据）
+ */
+public class UrlRequestStats {
+    private static final int LATENCY_WINDOW = 256; // 耗时窗口样本数
+
+    private final RollingPercentile latencies = new RollingPercentile(LATENCY_WINDOW); // 仅成功请求的耗时
+    private final RollingPercentile outcomes = new RollingPercentile(LATENCY_WINDOW); // 1失败 0成功
+
+    public void record(long latencyMillis, boolean success) {
+        // 失败请求多为超时，耗时即超时时间，只计入失败比例
+        if (success) {
+            latencies.record(latencyMillis);
+        }
+        outcomes.record(success ? 0 : 1);
+    }
+
+    /**
+     * 最近窗口内的请求数
+     */
+    public int getRecentCount() {
+        return outcomes.size();
+    }
+
+    /**
+     * 最近窗口内成功请求的耗时样本数
+     */
+    public int getLatencySampleCount() {
+        return latencies.size();
+    }
+
+    public long getLatencyPercentile(double percentile) {
+        return latencies.getPercentile(percentile);
+    }
+
+    /**
+     * 最近窗口内的失败比例，无样本时返回0
+     */
+    public double getRecentFailureRatio() {
+        return Math.max(0, outcomes.getAverage());
+    }
+}
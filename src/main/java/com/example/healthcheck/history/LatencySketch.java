@@ -0,0 +1,68 @@
+package com.example.healthcheck.history;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 耗时分布草图：按 √2 倍递增的对数分桶计数，可合并，用于从汇总数据估算分位数
+ */
+public class LatencySketch {
+    public static final int BUCKETS = 32; // 覆盖 0 ~ 65秒
+    public static final int BYTES = BUCKETS * 4;
+
+    private final int[] counts = new int[BUCKETS];
+
+    public void add(long latencyMillis) {
+        counts[bucketOf(latencyMillis)]++;
+    }
+
+    public void merge(LatencySketch other) {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] += other.counts[i];
+        }
+    }
+
+    /**
+     * 估算分位数（返回所在桶的上界），percentile取值0-100，无样本时返回-1
+     */
+    public long quantile(double percentile) {
+        long total = 0;
+        for (int count : counts) {
+            total += count;
+        }
+        if (total == 0) {
+            return -1;
+        }
+        long rank = (long) Math.ceil(percentile / 100.0 * total);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return upperBound(i);
+            }
+        }
+        return upperBound(BUCKETS - 1);
+    }
+
+    public void write(ByteBuffer buffer, int offset) {
+        for (int i = 0; i < BUCKETS; i++) {
+            buffer.putInt(offset + i * 4, counts[i]);
+        }
+    }
+
+    public static LatencySketch read(ByteBuffer buffer, int offset) {
+        LatencySketch sketch = new LatencySketch();
+        for (int i = 0; i < BUCKETS; i++) {
+            sketch.counts[i] = buffer.getInt(offset + i * 4);
+        }
+        return sketch;
+    }
+
+    private static int bucketOf(long latencyMillis) {
+        double log2 = Math.log(Math.max(0, latencyMillis) + 1) / Math.log(2);
+        return (int) Math.min(BUCKETS - 1, Math.floor(2 * log2));
+    }
+
+    private static long upperBound(int bucket) {
+        return (long) Math.ceil(Math.pow(2, (bucket + 1) / 2.0)) - 1;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,111 @@
+package com.example.healthcheck.history;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 单个URL在一个汇总周期内的探测统计，可合并
+ */
+public class RollupBucket {
+    // 记录格式：bucketStart(8) urlId(4) count(4) errors(4) min(4) max(4) sum(8) sketch
+    public static final int RECORD_SIZE = 36 + LatencySketch.BYTES;
+
+    private final int urlId;
+    private final long bucketStart;
+    private int count;
+    private int errors;
+    private int minLatency = Integer.MAX_VALUE;
+    private int maxLatency;
+    private long sumLatency;
+    private final LatencySketch sketch;
+
+    public RollupBucket(int urlId, long bucketStart) {
+        this(urlId, bucketStart, new LatencySketch());
+    }
+
+    private RollupBucket(int urlId, long bucketStart, LatencySketch sketch) {
+        this.urlId = urlId;
+        this.bucketStart = bucketStart;
+        this.sketch = sketch;
+    }
+
+    public void add(long latencyMillis, boolean error) {
+        int latency = (int) Math.min(Integer.MAX_VALUE, Math.max(0, latencyMillis));
+        count++;
+        if (error) {
+            errors++;
+        }
+        minLatency = Math.min(minLatency, latency);
+        maxLatency = Math.max(maxLatency, latency);
+        sumLatency += latency;
+        sketch.add(latency);
+    }
+
+    public void merge(RollupBucket other) {
+        count += other.count;
+        errors += other.errors;
+        minLatency = Math.min(minLatency, other.minLatency);
+        maxLatency = Math.max(maxLatency, other.maxLatency);
+        sumLatency += other.sumLatency;
+        sketch.merge(other.sketch);
+    }
+
+    /**
+     * 写入记录（时间戳由SegmentLog最后写入）
+     */
+    public void writeBody(ByteBuffer buffer, int offset) {
+        buffer.putInt(offset, urlId);
+        buffer.putInt(offset + 4, count);
+        buffer.putInt(offset + 8, errors);
+        buffer.putInt(offset + 12, minLatency);
+        buffer.putInt(offset + 16, maxLatency);
+        buffer.putLong(offset + 20, sumLatency);
+        sketch.write(buffer, offset + 28);
+    }
+
+    public static RollupBucket readBody(long bucketStart, ByteBuffer buffer, int offset) {
+        RollupBucket bucket = new RollupBucket(buffer.getInt(offset), bucketStart,
+                LatencySketch.read(buffer, offset + 28));
+        bucket.count = buffer.getInt(offset + 4);
+        bucket.errors = buffer.getInt(offset + 8);
+        bucket.minLatency = buffer.getInt(offset + 12);
+        bucket.maxLatency = buffer.getInt(offset + 16);
+        bucket.sumLatency = buffer.getLong(offset + 20);
+        return bucket;
+    }
+
+    public static int readUrlId(ByteBuffer buffer, int offset) {
+        return buffer.getInt(offset);
+    }
+
+    public int getUrlId() {
+        return urlId;
+    }
+
+    public long getBucketStart() {
+        return bucketStart;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public int getErrors() {
+        return errors;
+    }
+
+    public int getMinLatency() {
+        return count == 0 ? 0 : minLatency;
+    }
+
+    public int getMaxLatency() {
+        return maxLatency;
+    }
+
+    public long getSumLatency() {
+        return sumLatency;
+    }
+
+    public LatencySketch getSketch() {
+        return sketch;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,60 @@
+package com.example.healthcheck.history;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+
+/**
+ * 汇总粒度
+ */
+public enum RollupResolution {
+    MINUTE("1m", 60_000L),
+    HOUR("1h", 3_600_000L),
+    DAY("1d", 86_400_000L);
+
+    private final String code;
+    private final long periodMillis;
+
+    RollupResolution(String code, long periodMillis) {
+        this.code = code;
+        this.periodMillis = periodMillis;
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    public long getPeriodMillis() {
+        return periodMillis;
+    }
+
+    /**
+     * 计算时间所在的汇总桶起点，天粒度按本地时区零点对齐
+     */
+    public long bucketStart(long timestamp) {
+        if (this == DAY) {
+            ZoneId zone = ZoneId.systemDefault();
+            LocalDate day = Instant.ofEpochMilli(timestamp).atZone(zone).toLocalDate();
+            return day.atStartOfDay(zone).toInstant().toEpochMilli();
+        }
+        return timestamp - Math.floorMod(timestamp, periodMillis);
+    }
+
+    public long bucketEnd(long bucketStart) {
+        if (this == DAY) {
+            ZoneId zone = ZoneId.systemDefault();
+            LocalDate day = Instant.ofEpochMilli(bucketStart).atZone(zone).toLocalDate();
+            return day.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli();
+        }
+        return bucketStart + periodMillis;
+    }
+
+    public static RollupResolution fromCode(String code) {
+        for (RollupResolution resolution : values()) {
+            if (resolution.code.equalsIgnoreCase(code)) {
+                return resolution;
+            }
+        }
+        throw new IllegalArgumentException("不支持的汇总粒度: " + code);
+    }
+}
\ No newline at end of file
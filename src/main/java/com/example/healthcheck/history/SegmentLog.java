@@ -0,0 +1,270 @@
+package com.example.healthcheck.history;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * 只追加的定长记录日志，按天切分为内存映射的段文件：{yyyyMMdd}-{序号}.seg
+ * 每条记录首8字节为时间戳，最后写入，时间戳为0表示段内尚未写入的位置
+ */
+public class SegmentLog implements Closeable {
+
+    private static final DateTimeFormatter DAY_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd");
+    private static final String SUFFIX = ".seg";
+
+    private final Path dir;
+    private final int recordSize;
+    private final long segmentBytes;
+
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private LocalDate currentDay;
+    private int currentSeq;
+
+    public interface BodyWriter {
+        void write(ByteBuffer buffer, int offset);
+    }
+
+    public interface RecordVisitor {
+        void visit(long timestamp, ByteBuffer buffer, int offset);
+    }
+
+    /**
+     * 写入位置：段文件日期、序号和段内偏移，按写入顺序可比较
+     */
+    public static final class Position implements Comparable<Position> {
+        private final LocalDate day;
+        private final int seq;
+        private final int offset;
+
+        public Position(LocalDate day, int seq, int offset) {
+            this.day = day;
+            this.seq = seq;
+            this.offset = offset;
+        }
+
+        public LocalDate getDay() {
+            return day;
+        }
+
+        public int getSeq() {
+            return seq;
+        }
+
+        public int getOffset() {
+            return offset;
+        }
+
+        @Override
+        public int compareTo(Position other) {
+            int result = day.compareTo(other.day);
+            if (result == 0) {
+                result = Integer.compare(seq, other.seq);
+            }
+            return result == 0 ? Integer.compare(offset, other.offset) : result;
+        }
+    }
+
+    public SegmentLog(Path dir, int recordSize, long segmentBytes) throws IOException {
+        this.dir = dir;
+        this.recordSize = recordSize;
+        this.segmentBytes = segmentBytes - segmentBytes % recordSize;
+        Files.createDirectories(dir);
+    }
+
+    public synchronized void append(long timestamp, BodyWriter writer) throws IOException {
+        LocalDate day = dayOf(timestamp);
+        // 跨天或段已写满时切换段文件，迟到的旧日期记录写入当前段
+        if (buffer == null || day.isAfter(currentDay) || buffer.remaining() < recordSize) {
+            roll(buffer == null || day.isAfter(currentDay) ? day : currentDay);
+        }
+        int position = buffer.position();
+        writer.write(buffer, position + 8);
+        buffer.putLong(position, timestamp);
+        buffer.position(position + recordSize);
+    }
+
+    /**
+     * 当前写入位置，尚未写入过时返回null
+     */
+    public synchronized Position position() {
+        return buffer == null ? null : new Position(currentDay, currentSeq, buffer.position());
+    }
+
+    /**
+     * 按写入顺序遍历指定位置之后的记录，position为null时从头遍历
+     */
+    public void scanAfter(Position position, RecordVisitor visitor) throws IOException {
+        for (Path segment : listSegments()) {
+            LocalDate day = parseDay(segment);
+            if (day == null) {
+                continue;
+            }
+            Position start = new Position(day, parseSeq(segment), 0);
+            int startOffset = 0;
+            if (position != null) {
+                if (start.getDay().equals(position.getDay()) && start.getSeq() == position.getSeq()) {
+                    startOffset = position.getOffset();
+                } else if (start.compareTo(position) < 0) {
+                    continue;
+                }
+            }
+            try (FileChannel readChannel = FileChannel.open(segment, StandardOpenOption.READ)) {
+                MappedByteBuffer mapped = readChannel.map(FileChannel.MapMode.READ_ONLY, 0, readChannel.size());
+                for (int offset = startOffset; offset + recordSize <= mapped.limit(); offset += recordSize) {
+                    long timestamp = mapped.getLong(offset);
+                    if (timestamp == 0) {
+                        break;
+                    }
+                    visitor.visit(timestamp, mapped, offset + 8);
+                }
+            }
+        }
+    }
+
+    /**
+     * 遍历时间范围 [from, to) 内的记录
+     */
+    public void scan(long from, long to, RecordVisitor visitor) throws IOException {
+        // 迟到记录会写入后一天的段，因此多读一天
+        LocalDate firstDay = dayOf(from);
+        LocalDate lastDay = dayOf(to).plusDays(1);
+        for (Path segment : listSegments()) {
+            LocalDate day = parseDay(segment);
+            if (day == null || day.isBefore(firstDay) || day.isAfter(lastDay)) {
+                continue;
+            }
+            try (FileChannel readChannel = FileChannel.open(segment, StandardOpenOption.READ)) {
+                MappedByteBuffer mapped = readChannel.map(FileChannel.MapMode.READ_ONLY, 0, readChannel.size());
+                for (int offset = 0; offset + recordSize <= mapped.limit(); offset += recordSize) {
+                    long timestamp = mapped.getLong(offset);
+                    if (timestamp == 0) {
+                        break;
+                    }
+                    if (timestamp >= from && timestamp < to) {
+                        visitor.visit(timestamp, mapped, offset + 8);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 删除早于指定日期的段文件，返回删除数量
+     */
+    public synchronized int deleteBefore(LocalDate cutoff) throws IOException {
+        int deleted = 0;
+        for (Path segment : listSegments()) {
+            LocalDate day = parseDay(segment);
+            if (day != null && day.isBefore(cutoff) && !isCurrentSegment(segment)) {
+                Files.deleteIfExists(segment);
+                deleted++;
+            }
+        }
+        return deleted;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (buffer != null) {
+            buffer.force();
+            buffer = null;
+        }
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    private void roll(LocalDate day) throws IOException {
+        int seq = 0;
+        if (buffer != null && day.equals(currentDay)) {
+            seq = currentSeq + 1;
+        } else {
+            // 重启后继续写入当天最后一个段
+            for (Path segment : listSegments()) {
+                if (day.equals(parseDay(segment))) {
+                    seq = Math.max(seq, parseSeq(segment));
+                }
+            }
+        }
+        close();
+
+        while (true) {
+            Path file = dir.resolve(segmentName(day, seq));
+            RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw");
+            FileChannel newChannel = raf.getChannel();
+            MappedByteBuffer newBuffer = newChannel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+            int position = 0;
+            while (position + recordSize <= newBuffer.limit() && newBuffer.getLong(position) != 0) {
+                position += recordSize;
+            }
+            if (position + recordSize <= newBuffer.limit()) {
+                newBuffer.position(position);
+                channel = newChannel;
+                buffer = newBuffer;
+                currentDay = day;
+                currentSeq = seq;
+                return;
+            }
+            newChannel.close();
+            seq++;
+        }
+    }
+
+    private boolean isCurrentSegment(Path segment) {
+        return buffer != null && segment.getFileName().toString().equals(segmentName(currentDay, currentSeq));
+    }
+
+    private List<Path> listSegments() throws IOException {
+        List<Path> segments = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, "*" + SUFFIX)) {
+            stream.forEach(segments::add);
+        }
+        // 按日期和序号排序，即写入顺序
+        segments.sort(Comparator.comparing((Path segment) -> String.valueOf(parseDay(segment)))
+                .thenComparingInt(SegmentLog::parseSeq));
+        return segments;
+    }
+
+    private static String segmentName(LocalDate day, int seq) {
+        return DAY_FORMAT.format(day) + "-" + seq + SUFFIX;
+    }
+
+    private static LocalDate parseDay(Path segment) {
+        String name = segment.getFileName().toString();
+        try {
+            return LocalDate.parse(name.substring(0, 8), DAY_FORMAT);
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static int parseSeq(Path segment) {
+        String name = segment.getFileName().toString();
+        try {
+            return Integer.parseInt(name.substring(9, name.length() - SUFFIX.length()));
+        } catch (RuntimeException e) {
+            return 0;
+        }
+    }
+
+    private static LocalDate dayOf(long timestamp) {
+        return Instant.ofEpochMilli(timestamp).atZone(ZoneId.systemDefault()).toLocalDate();
+    }
+}
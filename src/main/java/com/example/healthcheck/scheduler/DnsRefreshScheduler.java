@@ -0,0 +1,39 @@
+package com.example.healthcheck.scheduler;
+
+import com.example.healthcheck.service.DnsCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+import org.springframework.scheduling.support.PeriodicTrigger;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+@Component
+public class DnsRefreshScheduler implements SchedulingConfigurer {
+
+    private final DnsCache dnsCache;
+
+    private final ThreadPoolTaskScheduler threadPoolTaskScheduler;
+
+    @Value("${health.dns.refresh-interval}")
+    private long refreshInterval;// 检查过期解析结果的间隔
+
+    public DnsRefreshScheduler(DnsCache dnsCache, ThreadPoolTaskScheduler threadPoolTaskScheduler) {
+        this.dnsCache = dnsCache;
+        this.threadPoolTaskScheduler = threadPoolTaskScheduler;
+    }
+
+    @Override
+    public void configureTasks(ScheduledTaskRegistrar taskRegistrar) {
+        taskRegistrar.setScheduler(threadPoolTaskScheduler);
+        taskRegistrar.addTriggerTask(
+                dnsCache::refreshExpired,
+                triggerContext -> {
+                    PeriodicTrigger trigger = new PeriodicTrigger(refreshInterval, TimeUnit.SECONDS);
+                    return trigger.nextExecutionTime(triggerContext);
+                }
+        );
+    }
+}
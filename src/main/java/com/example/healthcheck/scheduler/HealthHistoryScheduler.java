@@ -0,0 +1,49 @@
+package com.example.healthcheck.scheduler;
+
+import com.example.healthcheck.service.HealthHistoryService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+import org.springframework.scheduling.support.PeriodicTrigger;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+@Component
+public class HealthHistoryScheduler implements SchedulingConfigurer {
+
+    private final HealthHistoryService healthHistoryService;
+
+    private final ThreadPoolTaskScheduler threadPoolTaskScheduler;
+
+    @Value("${health.history.flush-interval}")
+    private long flushInterval;// 汇总数据落盘间隔
+
+    @Value("${health.history.cleanup-interval}")
+    private long cleanupInterval;// 过期段文件清理间隔
+
+    public HealthHistoryScheduler(HealthHistoryService healthHistoryService, ThreadPoolTaskScheduler threadPoolTaskScheduler) {
+        this.healthHistoryService = healthHistoryService;
+        this.threadPoolTaskScheduler = threadPoolTaskScheduler;
+    }
+
+    @Override
+    public void configureTasks(ScheduledTaskRegistrar taskRegistrar) {
+        taskRegistrar.setScheduler(threadPoolTaskScheduler);
+        taskRegistrar.addTriggerTask(
+                healthHistoryService::flushRollups,
+                triggerContext -> {
+                    PeriodicTrigger trigger = new PeriodicTrigger(flushInterval, TimeUnit.SECONDS);
+                    return trigger.nextExecutionTime(triggerContext);
+                }
+        );
+        taskRegistrar.addTriggerTask(
+                healthHistoryService::deleteExpiredSegments,
+                triggerContext -> {
+                    PeriodicTrigger trigger = new PeriodicTrigger(cleanupInterval, TimeUnit.SECONDS);
+                    return trigger.nextExecutionTime(triggerContext);
+                }
+        );
+    }
+}
\ No newline at end of file
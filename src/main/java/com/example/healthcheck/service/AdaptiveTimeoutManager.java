@@ -0,0 +1,114 @@
+package com.example.healthcheck.service;
+
+import com.example.healthcheck.dto.HealthCheckResult;
+import com.example.healthcheck.utils.RollingPercentile;
+import org.apache.http.client.config.RequestConfig;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 按URL自适应探测超时：超时 = 最近探测耗时分位数 × 安全系数，并限制在上下限之间。
+ * 内网快速URL更快判定宕机，远端慢URL不会因全局超时过短被误剔除
+ */
+@Service
+public class AdaptiveTimeoutManager {
+
+    @Value("${health.adaptive-timeout.enabled}")
+    private boolean enabled;
+
+    @Value("${health.adaptive-timeout.window}")
+    private int window;// 参与计算的最近探测次数
+
+    @Value("${health.adaptive-timeout.min-samples}")
+    private int minSamples;// 样本不足时使用全局超时
+
+    @Value("${health.adaptive-timeout.percentile}")
+    private double percentile;// 耗时分位数
+
+    @Value("${health.adaptive-timeout.safety-factor}")
+    private double safetyFactor;// 安全系数
+
+    @Value("${health.adaptive-timeout.min}")
+    private int minTimeout;// 超时下限(毫秒)
+
+    @Value("${health.adaptive-timeout.max}")
+    private int maxTimeout;// 超时上限(毫秒)
+
+    @Value("${health.restTemplate.socketTimeout}")
+    private int socketTimeout;
+
+    @Value("${health.restTemplate.connectionTimeout}")
+    private int connectionTimeout;
+
+    @Value("${health.restTemplate.connectionRequestTimeout}")
+    private int connectionRequestTimeout;
+
+    private final Map<String, LatencyWindow> latencyWindows = new ConcurrentHashMap<>();
+
+    /**
+     * 记录一次探测结果
+     */
+    public void record(HealthCheckResult result) {
+        LatencyWindow latencyWindow = latencyWindows.computeIfAbsent(result.getUrl(), k -> new LatencyWindow(window));
+        if (result.isConnectionIssue()) {
+            // 连接失败的耗时即超时本身，不计入样本；连续失败时逐次放宽超时，避免服务变慢时被误剔除
+            latencyWindow.failureStreak.incrementAndGet();
+        } else {
+            latencyWindow.latencies.record(result.getResponseTime());
+            latencyWindow.failureStreak.set(0);
+        }
+    }
+
+    /**
+     * 清除不再使用的URL的耗时窗口
+     */
+    public void remove(String url) {
+        latencyWindows.remove(url);
+    }
+
+    /**
+     * 获取URL的自适应超时(毫秒)，未开启或样本不足时返回-1
+     */
+    public int getTimeout(String url) {
+        LatencyWindow latencyWindow = latencyWindows.get(url);
+        if (!enabled || latencyWindow == null || latencyWindow.latencies.size() < minSamples) {
+            return -1;
+        }
+        long latency = Math.max(1, latencyWindow.latencies.getPercentile(percentile));
+        double timeout = latency * safetyFactor * Math.pow(2, Math.min(latencyWindow.failureStreak.get(), 16));
+        return (int) Math.max(minTimeout, Math.min(maxTimeout, timeout));
+    }
+
+    /**
+     * TCP探测的连接超时
+     */
+    public int getConnectTimeout(String url) {
+        int timeout = getTimeout(url);
+        return timeout < 0 ? connectionTimeout : timeout;
+    }
+
+    /**
+     * HTTP探测的请求配置，连接和读取超时均使用自适应超时，从连接池获取连接的超时不变
+     */
+    public RequestConfig getRequestConfig(String url) {
+        int timeout = getTimeout(url);
+        return RequestConfig.custom()
+                .setSocketTimeout(timeout < 0 ? socketTimeout : timeout)
+                .setConnectTimeout(timeout < 0 ? connectionTimeout : timeout)
+                .setConnectionRequestTimeout(connectionRequestTimeout)
+                .build();
+    }
+
+    private static class LatencyWindow {
+        private final RollingPercentile latencies;
+        private final AtomicInteger failureStreak = new AtomicInteger(); // 连续连接失败次数
+
+        LatencyWindow(int size) {
+            this.latencies = new RollingPercentile(size);
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.healthcheck.service;
+
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+
+public interface BalancedRequestExecutor {
+
+    /**
+     * 按负载均衡选择资方URL发送请求
+     *
+     * @param idempotent 幂等请求在连接失败时会换URL重试，并在响应过慢时发送对冲请求
+     */
+    <T> ResponseEntity<T> execute(String bankId, HttpMethod method, HttpEntity<?> requestEntity,
+                                  Class<T> responseType, boolean idempotent);
+
+}
\ No newline at end of file
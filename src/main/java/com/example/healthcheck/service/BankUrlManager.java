@@ -5,14 +5,22 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
 
 @Service
 public class BankUrlManager {
 
     private final BankUrlConfig bankUrlConfig;
-    private final Map<String, String> urlToBankIdMap = new HashMap<>();
+    private final Map<String, String> urlToBankIdMap = new ConcurrentHashMap<>();
     private final Map<String, BankUrlConfig.BankConfig> bankConfigMap = new HashMap<>();
-    private final Map<String, Integer> urlWeights = new HashMap<>(); // 存储URL权重
+    private final Map<String, Double> urlWeights = new ConcurrentHashMap<>(); // 存储URL权重，IP端点为源URL权重的均分
+    private final Map<String, Integer> urlPriorities = new ConcurrentHashMap<>(); // 存储显式配置的URL优先级
+    private final Map<String, String> urlLocalities = new ConcurrentHashMap<>(); // 存储URL机房标签
+    private final Map<String, List<String>> bankUrls = new ConcurrentHashMap<>(); // 资方当前生效的URL，IP展开后为各IP端点
+    private final Map<String, List<String>> expandedEndpoints = new ConcurrentHashMap<>(); // 源URL -> 按IP展开的端点
+    private final Map<String, String> hostHeaders = new ConcurrentHashMap<>(); // IP端点 -> 请求时使用的Host头
 
     @Autowired
     public BankUrlManager(BankUrlConfig bankUrlConfig) {
@@ -23,10 +31,17 @@ public class BankUrlManager {
     private void initializeMappings() {
         bankUrlConfig.getConfigs().forEach((bankId, config) -> {
             bankConfigMap.put(bankId, config);
+            bankUrls.put(bankId, new CopyOnWriteArrayList<>(config.getUrlStrings()));
             for (BankUrlConfig.UrlConfig urlConfig : config.getUrls()) {
                 String url = urlConfig.getUrl();
                 urlToBankIdMap.put(url, bankId);
-                urlWeights.put(url, urlConfig.getWeight()); // 存储URL权重
+                urlWeights.put(url, (double) urlConfig.getWeight()); // 存储URL权重
+                if (urlConfig.getPriority() != null) {
+                    urlPriorities.put(url, urlConfig.getPriority());
+                }
+                if (urlConfig.getLocality() != null) {
+                    urlLocalities.put(url, urlConfig.getLocality());
+                }
             }
         });
     }
@@ -39,8 +54,70 @@ public class BankUrlManager {
         return bankConfigMap.get(bankId);
     }
 
-    public int getUrlWeight(String url) {
-        return urlWeights.getOrDefault(url, 1); // 默认权重为1
+    /**
+     * 获取URL权重，按IP展开的端点平分源URL的权重
+     */
+    public double getUrlWeight(String url) {
+        return urlWeights.getOrDefault(url, 1.0); // 默认权重为1
+    }
+
+    /**
+     * 获取显式配置的URL优先级，未配置返回null
+     */
+    public Integer getUrlPriority(String url) {
+        return urlPriorities.get(url);
+    }
+
+    public String getUrlLocality(String url) {
+        return urlLocalities.get(url);
+    }
+
+    /**
+     * 获取资方当前生效的URL列表，配置了IP展开的URL替换为各IP端点
+     */
+    public List<String> getBankUrls(String bankId) {
+        return bankUrls.getOrDefault(bankId, Collections.emptyList());
+    }
+
+    /**
+     * 获取IP端点请求时需要携带的Host头，非展开端点返回null
+     */
+    public String getHostHeader(String url) {
+        return hostHeaders.get(url);
+    }
+
+    /**
+     * 用按IP展开的端点替换源URL，端点继承源URL的资方、优先级和机房标签并平分其权重，
+     * 不再使用的端点移除映射后返回
+     */
+    public synchronized List<String> replaceEndpoints(String sourceUrl, List<String> endpoints, String hostHeader) {
+        String bankId = urlToBankIdMap.get(sourceUrl);
+        List<String> previous = expandedEndpoints.getOrDefault(sourceUrl, Collections.singletonList(sourceUrl));
+        double endpointWeight = getUrlWeight(sourceUrl) / endpoints.size();
+        endpoints.forEach(endpoint -> {
+            urlToBankIdMap.put(endpoint, bankId);
+            urlWeights.put(endpoint, endpointWeight);
+            Optional.ofNullable(urlPriorities.get(sourceUrl)).ifPresent(priority -> urlPriorities.put(endpoint, priority));
+            Optional.ofNullable(urlLocalities.get(sourceUrl)).ifPresent(locality -> urlLocalities.put(endpoint, locality));
+            hostHeaders.put(endpoint, hostHeader);
+        });
+        expandedEndpoints.put(sourceUrl, new ArrayList<>(endpoints));
+
+        // 按配置顺序重建资方URL列表
+        bankUrls.put(bankId, new CopyOnWriteArrayList<>(bankConfigMap.get(bankId).getUrlStrings().stream()
+                .flatMap(url -> expandedEndpoints.getOrDefault(url, Collections.singletonList(url)).stream())
+                .collect(Collectors.toList())));
+
+        List<String> retired = previous.stream().filter(url -> !endpoints.contains(url)).collect(Collectors.toList());
+        // 源URL的映射是配置数据，保留供后续展开使用
+        retired.stream().filter(url -> !url.equals(sourceUrl)).forEach(url -> {
+            urlToBankIdMap.remove(url);
+            urlWeights.remove(url);
+            urlPriorities.remove(url);
+            urlLocalities.remove(url);
+            hostHeaders.remove(url);
+        });
+        return retired;
     }
 
     public Map<String, BankUrlConfig.BankConfig> getAllBankConfigs() {
@@ -0,0 +1,148 @@
+package com.example.healthcheck.service;
+
+import org.apache.http.conn.DnsResolver;
+import org.apache.http.conn.util.InetAddressUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+/**
+ * DNS解析缓存：首次解析后由后台线程在过期前异步刷新，探测和请求只读缓存，不在调用线程上阻塞解析。
+ * 解析失败时继续使用上次成功的结果，从未成功过的主机缓存失败结果
+ */
+@Service
+public class DnsCache implements DnsResolver {
+
+    @Value("${health.dns.ttl}")
+    private long ttl;// 解析结果有效期(秒)，JDK解析无法获取记录TTL，按配置值刷新
+
+    @Value("${health.dns.negative-ttl}")
+    private long negativeTtl;// 解析失败结果的有效期(秒)
+
+    @Value("${health.dns.refresh-threads}")
+    private int refreshThreads;// 后台解析线程数
+
+    private static final Logger logger = LoggerFactory.getLogger(DnsCache.class);
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final List<BiConsumer<String, InetAddress[]>> listeners = new CopyOnWriteArrayList<>();
+    private ExecutorService executor;
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadIndex = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(refreshThreads, runnable -> {
+            Thread thread = new Thread(runnable, "dns-refresh-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public InetAddress[] resolve(String host) throws UnknownHostException {
+        if (InetAddressUtils.isIPv4Address(host) || InetAddressUtils.isIPv6Address(host)) {
+            return InetAddress.getAllByName(host);
+        }
+        Entry entry = entries.get(host);
+        if (entry == null) {
+            // 首次解析在调用线程上完成，之后由后台刷新；解析在map外进行，避免阻塞同桶的其他主机
+            Entry resolved = lookup(host);
+            entry = Optional.ofNullable(entries.putIfAbsent(host, resolved)).orElse(resolved);
+        }
+        if (entry.addresses == null) {
+            throw new UnknownHostException(host);
+        }
+        return entry.addresses.clone();
+    }
+
+    /**
+     * 主机解析结果变化时回调(host, 新地址)
+     */
+    public void addListener(BiConsumer<String, InetAddress[]> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * 异步刷新已过期的解析结果，由定时任务调用
+     */
+    public void refreshExpired() {
+        long now = System.currentTimeMillis();
+        entries.forEach((host, entry) -> {
+            if (entry.expireTime > now || entry.refreshing) {
+                return;
+            }
+            entry.refreshing = true;
+            CompletableFuture.supplyAsync(() -> lookup(host), executor)
+                    .whenComplete((refreshed, e) -> {
+                        entry.refreshing = false;
+                        if (refreshed != null) {
+                            update(host, entry, refreshed);
+                        }
+                    });
+        });
+    }
+
+    private void update(String host, Entry previous, Entry refreshed) {
+        if (refreshed.addresses == null && previous.addresses != null) {
+            // 解析失败时保留旧结果，按失败有效期后重试
+            logger.warn("DNS刷新失败，继续使用旧结果: {} {}", host, Arrays.toString(previous.addresses));
+            previous.expireTime = refreshed.expireTime;
+            return;
+        }
+        entries.put(host, refreshed);
+        if (!sameAddresses(previous.addresses, refreshed.addresses)) {
+            logger.info("DNS解析结果变化: {} {} -> {}", host,
+                    Arrays.toString(previous.addresses), Arrays.toString(refreshed.addresses));
+            listeners.forEach(listener -> listener.accept(host, refreshed.addresses));
+        }
+    }
+
+    private Entry lookup(String host) {
+        try {
+            InetAddress[] addresses = InetAddress.getAllByName(host);
+            return new Entry(addresses, System.currentTimeMillis() + ttl * 1000);
+        } catch (UnknownHostException e) {
+            return new Entry(null, System.currentTimeMillis() + negativeTtl * 1000);
+        }
+    }
+
+    private boolean sameAddresses(InetAddress[] a, InetAddress[] b) {
+        if (a == null || b == null) {
+            return a == b;
+        }
+        return new HashSet<>(Arrays.asList(a)).equals(new HashSet<>(Arrays.asList(b)));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private static class Entry {
+        private final InetAddress[] addresses; // null表示解析失败
+        private volatile long expireTime;
+        private volatile boolean refreshing;
+
+        Entry(InetAddress[] addresses, long expireTime) {
+            this.addresses = addresses;
+            this.expireTime = expireTime;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.healthcheck.service;
+
+import org.apache.http.conn.util.InetAddressUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.util.UriComponents;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import javax.annotation.PostConstruct;
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+
+/**
+ * 按IP展开端点：资方配置expandIps后，域名URL按DNS解析出的每个IP展开为独立端点，
+ * 健康状态和负载按IP统计，单个IP故障不会影响同域名的其他IP。解析结果变化时同步增删端点
+ */
+@Service
+public class EndpointExpander {
+
+    private static final Logger logger = LoggerFactory.getLogger(EndpointExpander.class);
+    private final BankUrlManager bankUrlManager;
+    private final DnsCache dnsCache;
+    private final HealthScoreManager healthScoreManager;
+    private final AdaptiveTimeoutManager adaptiveTimeoutManager;
+    private final SlowStartManager slowStartManager;
+    private final CopyOnWriteArrayList<String> activeUrls;
+    private final Map<String, List<String>> sourceUrlsByHost = new ConcurrentHashMap<>(); // 域名 -> 需要展开的源URL
+
+    public EndpointExpander(BankUrlManager bankUrlManager, DnsCache dnsCache, HealthScoreManager healthScoreManager,
+                            AdaptiveTimeoutManager adaptiveTimeoutManager, SlowStartManager slowStartManager,
+                            CopyOnWriteArrayList<String> activeUrls) {
+        this.bankUrlManager = bankUrlManager;
+        this.dnsCache = dnsCache;
+        this.healthScoreManager = healthScoreManager;
+        this.adaptiveTimeoutManager = adaptiveTimeoutManager;
+        this.slowStartManager = slowStartManager;
+        this.activeUrls = activeUrls;
+    }
+
+    @PostConstruct
+    public void init() {
+        bankUrlManager.getAllBankConfigs().values().stream()
+                .filter(config -> config.isExpandIps())
+                .flatMap(config -> config.getUrlStrings().stream())
+                .forEach(url -> {
+                    UriComponents uri = UriComponentsBuilder.fromHttpUrl(url).build();
+                    // https按IP连接会导致证书校验失败，IP地址无需展开
+                    if (!"http".equalsIgnoreCase(uri.getScheme()) || uri.getHost() == null
+                            || InetAddressUtils.isIPv4Address(uri.getHost()) || InetAddressUtils.isIPv6Address(uri.getHost())) {
+                        logger.warn("URL不支持按IP展开，按原URL探测: {}", url);
+                        return;
+                    }
+                    sourceUrlsByHost.computeIfAbsent(uri.getHost(), k -> new CopyOnWriteArrayList<>()).add(url);
+                });
+
+        sourceUrlsByHost.forEach((host, urls) -> {
+            try {
+                InetAddress[] addresses = dnsCache.resolve(host);
+                urls.forEach(url -> expand(url, addresses));
+            } catch (UnknownHostException e) {
+                // 解析失败时保留原URL，DNS恢复后由刷新回调展开
+                logger.warn("域名解析失败，暂按原URL探测: {}", host);
+            }
+        });
+        dnsCache.addListener(this::onAddressesChanged);
+    }
+
+    private void onAddressesChanged(String host, InetAddress[] addresses) {
+        List<String> urls = sourceUrlsByHost.get(host);
+        if (urls == null || addresses == null) {
+            // 解析失败不删除端点，由健康检查按探测结果剔除
+            return;
+        }
+        urls.forEach(url -> expand(url, addresses));
+    }
+
+    private void expand(String sourceUrl, InetAddress[] addresses) {
+        UriComponents uri = UriComponentsBuilder.fromHttpUrl(sourceUrl).build();
+        String hostHeader = uri.getPort() == -1 ? uri.getHost() : uri.getHost() + ":" + uri.getPort();
+        List<String> endpoints = Arrays.stream(addresses)
+                .map(address -> UriComponentsBuilder.fromHttpUrl(sourceUrl)
+                        .host(address instanceof Inet6Address ? "[" + address.getHostAddress() + "]" : address.getHostAddress())
+                        .toUriString())
+                .distinct()
+                .collect(Collectors.toList());
+
+        // 仅新增的端点加入检测列表，已被剔除的端点仍由恢复检测处理
+        List<String> current = bankUrlManager.getBankUrls(bankUrlManager.getBankIdForUrl(sourceUrl));
+        List<String> added = endpoints.stream().filter(endpoint -> !current.contains(endpoint)).collect(Collectors.toList());
+        List<String> retired = bankUrlManager.replaceEndpoints(sourceUrl, endpoints, hostHeader);
+        activeUrls.removeAll(retired);
+        activeUrls.addAllAbsent(added);
+        // 清除退役端点的评分、超时和预热状态
+        retired.forEach(url -> {
+            healthScoreManager.remove(url);
+            adaptiveTimeoutManager.remove(url);
+            slowStartManager.cancelWarmup(url);
+        });
+        logger.info("按IP展开端点: {} -> {}，新增: {}，移除: {}", sourceUrl, endpoints, added, retired);
+    }
+}
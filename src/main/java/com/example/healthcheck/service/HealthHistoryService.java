@@ -0,0 +1,22 @@
+package com.example.healthcheck.service;
+
+import com.example.healthcheck.dto.HealthCheckResult;
+import com.example.healthcheck.dto.HealthHistoryPoint;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface HealthHistoryService {
+
+    void record(HealthCheckResult result);
+
+    void flushRollups();
+
+    void deleteExpiredSegments();
+
+    /**
+     * 按URL或资方查询汇总历史，resolution为1m/1h/1d，为空时按时间跨度自动选择
+     */
+    List<HealthHistoryPoint> query(String url, String bankId, LocalDateTime from, LocalDateTime to, String resolution);
+
+}
\ No newline at end of file
@@ -0,0 +1,163 @@
+package com.example.healthcheck.service;
+
+import com.example.healthcheck.dto.HealthCheckResult;
+import com.example.healthcheck.dto.HealthScore;
+import com.example.healthcheck.dto.UrlRequestStats;
+import com.example.healthcheck.utils.RollingPercentile;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * URL综合健康评分：由最近探测的耗时、错误比例和状态计算，用于动态调整有效权重，
+ * 降级但仍存活的URL按比例减少流量而不是直接剔除。业务请求的失败比例和耗时样本足够时一并计入评分
+ */
+@Service
+public class HealthScoreManager {
+
+    @Value("${health.score.window}")
+    private int window;// 参与评分的最近探测次数
+
+    @Value("${health.score.error-status-factor}")
+    private double errorStatusFactor;// ERROR状态（非连接问题）的状态系数
+
+    @Value("${health.score.latency-offset}")
+    private long latencyOffset;// 耗时系数平滑值(毫秒)，避免几毫秒的差异造成权重波动
+
+    @Value("${health.score.min-score}")
+    private double minScore;// 评分下限，存活的URL至少保留少量流量
+
+    @Value("${health.score.min-request-samples}")
+    private int minRequestSamples;// 业务请求样本数达到该值后才计入评分
+
+    private final BankUrlManager bankUrlManager;
+    private final Map<String, ProbeWindow> probeWindows = new ConcurrentHashMap<>();
+    private final Map<String, HealthScore> scores = new ConcurrentHashMap<>();
+    private final Map<String, UrlRequestStats> requestStats = new ConcurrentHashMap<>(); // URL业务请求统计
+
+    public HealthScoreManager(BankUrlManager bankUrlManager) {
+        this.bankUrlManager = bankUrlManager;
+    }
+
+    /**
+     * 记录一次探测结果
+     */
+    public void record(HealthCheckResult result) {
+        probeWindows.computeIfAbsent(result.getUrl(), k -> new ProbeWindow(window)).record(result);
+    }
+
+    /**
+     * 记录一次业务请求的耗时和结果
+     */
+    public void recordRequest(String url, long latencyMillis, boolean success) {
+        requestStats.computeIfAbsent(url, k -> new UrlRequestStats()).record(latencyMillis, success);
+    }
+
+    /**
+     * 清除不再使用的URL的探测、请求统计和评分
+     */
+    public void remove(String url) {
+        probeWindows.remove(url);
+        requestStats.remove(url);
+        scores.remove(url);
+    }
+
+    /**
+     * 重新计算单个资方的评分
+     */
+    public void recalculate(String bankId) {
+        List<String> urls = bankUrlManager.getBankUrls(bankId).stream()
+                .filter(probeWindows::containsKey)
+                .collect(Collectors.toList());
+
+        // 以资方内最快URL的耗时中位数为基准
+        long bestMedian = urls.stream()
+                .mapToLong(url -> probeWindows.get(url).latencies.getPercentile(50))
+                .filter(latency -> latency >= 0)
+                .min()
+                .orElse(0);
+        long bestRequestMedian = urls.stream()
+                .mapToLong(this::getRequestMedian)
+                .filter(latency -> latency >= 0)
+                .min()
+                .orElse(0);
+
+        urls.forEach(url -> scores.put(url, calculate(url, probeWindows.get(url), bestMedian, bestRequestMedian)));
+    }
+
+    /**
+     * 获取URL评分，范围 [min-score, 1]，无探测数据时为1
+     */
+    public double getScore(String url) {
+        HealthScore score = scores.get(url);
+        return score == null ? 1.0 : score.getScore();
+    }
+
+    public HealthScore getHealthScore(String url) {
+        return scores.get(url);
+    }
+
+    private HealthScore calculate(String url, ProbeWindow probeWindow, long bestMedian, long bestRequestMedian) {
+        String lastStatus = probeWindow.lastStatus;
+        double statusFactor;
+        if ("UP".equals(lastStatus)) {
+            statusFactor = 1.0;
+        } else if ("ERROR".equals(lastStatus)) {
+            statusFactor = errorStatusFactor;
+        } else {
+            statusFactor = minScore;
+        }
+
+        double errorRatio = Math.max(0, probeWindow.errors.getAverage());
+        long median = probeWindow.latencies.getPercentile(50);
+        double latencyFactor = median < 0 ? 1.0
+                : (double) (bestMedian + latencyOffset) / (median + latencyOffset);
+
+        // 业务请求样本不足时不计入
+        UrlRequestStats stats = requestStats.get(url);
+        boolean hasRequests = stats != null && stats.getRecentCount() >= minRequestSamples;
+        double requestFailureRatio = hasRequests ? stats.getRecentFailureRatio() : 0;
+        long requestMedian = getRequestMedian(url);
+        double requestLatencyFactor = requestMedian < 0 ? 1.0
+                : (double) (bestRequestMedian + latencyOffset) / (requestMedian + latencyOffset);
+
+        double score = statusFactor * (1.0 - errorRatio) * latencyFactor
+                * (1.0 - requestFailureRatio) * requestLatencyFactor;
+        score = Math.max(minScore, Math.min(1.0, score));
+        return new HealthScore(url, lastStatus, statusFactor, errorRatio, median, latencyFactor,
+                requestFailureRatio, requestMedian, requestLatencyFactor, score);
+    }
+
+    // 业务请求耗时中位数，样本不足时返回-1
+    private long getRequestMedian(String url) {
+        UrlRequestStats stats = requestStats.get(url);
+        if (stats == null || stats.getLatencySampleCount() < minRequestSamples) {
+            return -1;
+        }
+        return stats.getLatencyPercentile(50);
+    }
+
+    private static class ProbeWindow {
+        private final RollingPercentile latencies;
+        private final RollingPercentile errors; // 1非UP 0UP
+        private volatile String lastStatus;
+
+        ProbeWindow(int size) {
+            this.latencies = new RollingPercentile(size);
+            this.errors = new RollingPercentile(size);
+        }
+
+        void record(HealthCheckResult result) {
+            lastStatus = result.getStatus();
+            errors.record("UP".equals(result.getStatus()) ? 0 : 1);
+            // 连接失败的耗时反映的是超时设置而非服务响应，不计入耗时
+            if (!result.isConnectionIssue()) {
+                latencies.record(result.getResponseTime());
+            }
+        }
+    }
+}
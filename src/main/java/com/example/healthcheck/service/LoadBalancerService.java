@@ -1,22 +1,34 @@
 package com.example.healthcheck.service;
 
+import com.example.healthcheck.config.BankUrlConfig;
+import com.example.healthcheck.dto.BankRoutingSnapshot;
 import com.example.healthcheck.dto.HealthCheckResult;
 import com.example.healthcheck.service.lbstrategy.LoadBalanceStrategy;
 import com.example.healthcheck.service.lbstrategy.RandomStrategy;
 import com.example.healthcheck.service.lbstrategy.RoundRobinStrategy;
 import com.example.healthcheck.service.lbstrategy.WeightedRoundRobinStrategy;
+import com.example.healthcheck.utils.RollingPercentile;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cloud.context.config.annotation.RefreshScope;
 import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
 import org.slf4j.Logger;
 
 import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
@@ -29,9 +41,21 @@ public class LoadBalancerService {
     @Value("${loadbalancer.strategy}")
     private String strategyType;
 
+    @Value("${loadbalancer.locality}")
+    private String localLocality;// 本机所在机房，未显式配置优先级的URL同机房为0，其他为1
+
+    @Value("${loadbalancer.overprovisioning-factor}")
+    private double overprovisioningFactor;// 超配系数，层内健康比例乘以该系数后才开始向下一层溢出
+
     private static final Logger logger = LoggerFactory.getLogger(LoadBalancerService.class);
+    private static final int REQUEST_LATENCY_WINDOW = 256; // 耗时窗口样本数
+    private static final int MIN_LATENCY_SAMPLES = 20; // 计算分位数的最少样本数
     private final BankUrlManager bankUrlManager;
-    private final Map<String, List<String>> healthyBankUrls = new ConcurrentHashMap<>();
+    private final Map<String, BankRoutingSnapshot> routingSnapshots = new ConcurrentHashMap<>();
+    private final SlowStartManager slowStartManager;
+    private final HealthScoreManager healthScoreManager;
+    private final Set<String> initializedBanks = ConcurrentHashMap.newKeySet(); // 已完成首轮检测的资方，首轮的URL不做慢启动
+    private final Map<String, RollingPercentile> bankRequestLatencies = new ConcurrentHashMap<>(); // 资方业务请求耗时窗口
 
     private LoadBalanceStrategy strategy;
     // 新增三个策略的引用字段
@@ -42,6 +66,10 @@ public class LoadBalancerService {
     // 新增初始化方法
     @PostConstruct
     public void initStrategy() {
+        // 超配系数不大于0时所有层都不承接流量
+        if (overprovisioningFactor <= 0) {
+            throw new IllegalArgumentException("loadbalancer.overprovisioning-factor 必须大于0: " + overprovisioningFactor);
+        }
         // 确保配置已注入后再选择策略
         switch (strategyType.toLowerCase()) {
             case "random":
@@ -58,8 +86,10 @@ public class LoadBalancerService {
     }
 
     @Autowired
-    public LoadBalancerService(BankUrlManager bankUrlManager, RoundRobinStrategy roundRobinStrategy, RandomStrategy randomStrategy, WeightedRoundRobinStrategy weightedStrategy) {
+    public LoadBalancerService(BankUrlManager bankUrlManager, SlowStartManager slowStartManager, HealthScoreManager healthScoreManager, RoundRobinStrategy roundRobinStrategy, RandomStrategy randomStrategy, WeightedRoundRobinStrategy weightedStrategy) {
         this.bankUrlManager = bankUrlManager;
+        this.slowStartManager = slowStartManager;
+        this.healthScoreManager = healthScoreManager;
         this.roundRobinStrategy = roundRobinStrategy;
         this.randomStrategy = randomStrategy;
         this.weightedStrategy = weightedStrategy;
@@ -68,7 +98,7 @@ public class LoadBalancerService {
 
     private void initializeBankStructures() {
         bankUrlManager.getAllBankConfigs().keySet().forEach(bankId -> {
-            healthyBankUrls.put(bankId, new CopyOnWriteArrayList<>());
+            routingSnapshots.put(bankId, new BankRoutingSnapshot(bankId, Collections.emptyList(), Collections.emptyList()));
         });
     }
 
@@ -76,45 +106,198 @@ public class LoadBalancerService {
      * 获取指定资方的下一个健康URL
      */
     public String getNextHealthyUrlForBank(String bankId) {
-        List<String> urls = healthyBankUrls.get(bankId);
-        if (urls == null || urls.isEmpty()) {
+        BankRoutingSnapshot snapshot = routingSnapshots.get(bankId);
+        if (snapshot == null || snapshot.isEmpty()) {
             return null;
         }
 
-        return strategy.chooseUrl(urls);
+        return strategy.chooseUrl(selectTierUrls(snapshot));
     }
 
     /**
-     * 更新健康URL列表（按资方分组）
+     * 获取指定资方的下一个健康URL，排除已尝试过的URL（用于重试和对冲请求）
      */
-    public void updateHealthyUrls(List<String> activeUrls, Map<String, HealthCheckResult> latestResults) {
-        // 按资方分组健康URL
-        Map<String, List<String>> newHealthyUrls = new ConcurrentHashMap<>();
+    public String getNextHealthyUrlForBank(String bankId, Collection<String> excludedUrls) {
+        if (excludedUrls.isEmpty()) {
+            return getNextHealthyUrlForBank(bankId);
+        }
+        BankRoutingSnapshot snapshot = routingSnapshots.get(bankId);
+        if (snapshot == null || snapshot.isEmpty()) {
+            return null;
+        }
 
-        activeUrls.forEach(url -> {
-            HealthCheckResult result = latestResults.get(url);
-            if (result == null) return;
+        // 优先在选中的层内挑选，该层已全部尝试过则放宽到全部健康URL
+        List<String> candidates = selectTierUrls(snapshot).stream()
+                .filter(url -> !excludedUrls.contains(url))
+                .collect(Collectors.toList());
+        if (candidates.isEmpty()) {
+            candidates = snapshot.getHealthyUrls().stream()
+                    .filter(url -> !excludedUrls.contains(url))
+                    .collect(Collectors.toList());
+        }
+        return candidates.isEmpty() ? null : strategy.chooseUrl(candidates);
+    }
 
-            String bankId = bankUrlManager.getBankIdForUrl(url);
-            if (bankId == null) return;
+    /**
+     * 记录业务请求耗时与结果，计入URL健康评分并用于资方对冲延迟
+     */
+    public void recordRequestResult(String url, long latencyMillis, boolean success) {
+        String bankId = bankUrlManager.getBankIdForUrl(url);
+        if (bankId == null) {
+            return;
+        }
+        healthScoreManager.recordRequest(url, latencyMillis, success);
+        if (success) {
+            bankRequestLatencies.computeIfAbsent(bankId, k -> new RollingPercentile(REQUEST_LATENCY_WINDOW))
+                    .record(latencyMillis);
+        }
+    }
 
-            boolean isHealthy = considerHttpErrorsHealthy ||
-                    ("UP".equals(result.getStatus()) ||
-                            ("ERROR".equals(result.getStatus()) && !result.isTrulyUnavailable()));
+    /**
+     * 获取资方业务请求耗时分位数，样本不足时返回-1
+     */
+    public long getRequestLatencyPercentile(String bankId, double percentile) {
+        RollingPercentile latencies = bankRequestLatencies.get(bankId);
+        if (latencies == null || latencies.size() < MIN_LATENCY_SAMPLES) {
+            return -1;
+        }
+        return latencies.getPercentile(percentile);
+    }
+
+    /**
+     * 获取指定资方当前的路由快照
+     */
+    public BankRoutingSnapshot getRoutingSnapshot(String bankId) {
+        return routingSnapshots.get(bankId);
+    }
 
-            if (isHealthy) {
-                newHealthyUrls.computeIfAbsent(bankId, k -> new CopyOnWriteArrayList<>()).add(url);
+    // 选中层的健康URL，没有承接流量的层时退回全部健康URL
+    private List<String> selectTierUrls(BankRoutingSnapshot snapshot) {
+        BankRoutingSnapshot.PriorityTier tier = selectTier(snapshot);
+        return tier == null ? snapshot.getHealthyUrls() : tier.getHealthyUrls();
+    }
+
+    // 按各层流量比例选择优先级层
+    private BankRoutingSnapshot.PriorityTier selectTier(BankRoutingSnapshot snapshot) {
+        List<BankRoutingSnapshot.PriorityTier> tiers = snapshot.getTiers();
+        BankRoutingSnapshot.PriorityTier selected = null;
+        double r = ThreadLocalRandom.current().nextDouble(100.0);
+        for (BankRoutingSnapshot.PriorityTier tier : tiers) {
+            if (tier.getLoadPercent() <= 0) {
+                continue;
             }
-        });
+            selected = tier;
+            if (r < tier.getCumulativeLoadPercent()) {
+                break;
+            }
+        }
+        return selected;
+    }
 
-        // 更新资方健康URL列表
-        newHealthyUrls.forEach((bankId, urls) -> {
-            List<String> currentList = healthyBankUrls.get(bankId);
-            currentList.clear();
-            currentList.addAll(urls);
-        });
+    /**
+     * 更新单个资方的健康URL列表，资方探测舱壁完成一轮后调用，不等待其他资方
+     */
+    public synchronized void updateHealthyUrlsForBank(String bankId, List<String> activeUrls,
+                                                      Map<String, HealthCheckResult> latestResults) {
+        BankUrlConfig.BankConfig config = bankUrlManager.getBankConfig(bankId);
+        if (config == null) {
+            return;
+        }
+        // 按最新探测结果刷新健康评分
+        healthScoreManager.recalculate(bankId);
+
+        List<String> urls = activeUrls.stream()
+                .filter(url -> bankId.equals(bankUrlManager.getBankIdForUrl(url)))
+                .filter(url -> isHealthy(latestResults.get(url)))
+                .collect(Collectors.toCollection(CopyOnWriteArrayList::new));
+
+        BankRoutingSnapshot previous = routingSnapshots.get(bankId);
+        List<String> previousUrls = previous == null ? Collections.emptyList() : previous.getHealthyUrls();
 
-        logger.info("按资方更新的健康URLs: {}", newHealthyUrls);
+        // 新进入健康列表的URL（恢复或新增）开始慢启动预热
+        if (!initializedBanks.add(bankId)) {
+            urls.stream().filter(url -> !previousUrls.contains(url)).forEach(slowStartManager::startWarmup);
+        }
+        previousUrls.stream().filter(url -> !urls.contains(url)).forEach(slowStartManager::cancelWarmup);
+
+        BankRoutingSnapshot snapshot = buildRoutingSnapshot(bankId, urls);
+        routingSnapshots.put(bankId, snapshot);
+        if (snapshot.getTiers().stream().filter(tier -> tier.getLoadPercent() > 0).count() > 1) {
+            logger.info("资方 {} 流量溢出到低优先级: {}", config.getBankName(), snapshot.getTiers());
+        }
+
+        logger.info("资方 {} 更新的健康URLs: {}", config.getBankName(), urls);
+    }
+
+    private boolean isHealthy(HealthCheckResult result) {
+        if (result == null) {
+            return false;
+        }
+        return considerHttpErrorsHealthy ||
+                ("UP".equals(result.getStatus()) ||
+                        ("ERROR".equals(result.getStatus()) && !result.isTrulyUnavailable()));
+    }
+
+    // 按优先级分层并计算每层流量比例，各层URL取自本次发布的健康列表，与快照的健康URL保持一致
+    private BankRoutingSnapshot buildRoutingSnapshot(String bankId, List<String> healthyUrls) {
+        Map<Integer, List<String>> healthyByPriority = new TreeMap<>();
+        healthyUrls.forEach(url ->
+                healthyByPriority.computeIfAbsent(resolvePriority(url), k -> new ArrayList<>()).add(url));
+        // 各层配置的URL数作为健康比例的分母
+        Map<Integer, Integer> configuredCounts = new TreeMap<>();
+        bankUrlManager.getBankUrls(bankId).forEach(url -> configuredCounts.merge(resolvePriority(url), 1, Integer::sum));
+        Set<Integer> priorities = new TreeSet<>(configuredCounts.keySet());
+        priorities.addAll(healthyByPriority.keySet());
+
+        // 各层健康度 = min(100, 超配系数 * 健康数 / 总数)
+        Map<Integer, Double> tierHealth = new HashMap<>();
+        Map<Integer, Integer> tierTotals = new HashMap<>();
+        double totalHealth = 0;
+        for (Integer priority : priorities) {
+            int healthyCount = healthyByPriority.getOrDefault(priority, Collections.emptyList()).size();
+            // 端点替换期间健康列表中可能有已不在配置中的URL，总数不小于健康数
+            int totalCount = Math.max(configuredCounts.getOrDefault(priority, 0), healthyCount);
+            double health = Math.min(100.0, overprovisioningFactor * 100.0 * healthyCount / totalCount);
+            tierHealth.put(priority, health);
+            tierTotals.put(priority, totalCount);
+            totalHealth += health;
+        }
+
+        // 高优先级层按健康度承接流量，剩余部分依次溢出到下一层；整体健康度不足100时按比例归一
+        List<BankRoutingSnapshot.PriorityTier> tiers = new ArrayList<>();
+        double remaining = 100.0;
+        double cumulative = 0;
+        for (Integer priority : priorities) {
+            double health = tierHealth.get(priority);
+            double load;
+            if (totalHealth <= 0) {
+                load = 0;
+            } else if (totalHealth < 100.0) {
+                load = health * 100.0 / totalHealth;
+            } else {
+                load = Math.min(remaining, health);
+            }
+            remaining -= load;
+            cumulative += load;
+
+            tiers.add(new BankRoutingSnapshot.PriorityTier(priority,
+                    healthyByPriority.getOrDefault(priority, Collections.emptyList()),
+                    tierTotals.get(priority), load, cumulative));
+        }
+
+        return new BankRoutingSnapshot(bankId, tiers, healthyUrls);
+    }
+
+    // 显式优先级优先，否则按是否同机房推断
+    private int resolvePriority(String url) {
+        Integer priority = bankUrlManager.getUrlPriority(url);
+        if (priority != null) {
+            return priority;
+        }
+        if (!StringUtils.isEmpty(localLocality)) {
+            return localLocality.equals(bankUrlManager.getUrlLocality(url)) ? 0 : 1;
+        }
+        return 0;
     }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,178 @@
+package com.example.healthcheck.service;
+
+import com.example.healthcheck.dto.BulkheadMetrics;
+import com.example.healthcheck.utils.RollingPercentile;
+import org.apache.http.HttpClientConnection;
+import org.apache.http.config.Registry;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.conn.ConnectionRequest;
+import org.apache.http.conn.DnsResolver;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 单个资方的探测舱壁：独立的连接池分区和有界的探测线程及队列，资方之间互不影响
+ */
+public class ProbeBulkhead {
+    private static final int WAIT_WINDOW = 256; // 等待耗时窗口样本数
+
+    private final String bankId;
+    private final int probeConcurrency;
+    private final ThreadPoolExecutor executor;
+    private final MeteredConnectionManager connectionManager;
+    private final RollingPercentile queueWaits = new RollingPercentile(WAIT_WINDOW);
+    private final AtomicBoolean roundInFlight = new AtomicBoolean(false);
+    private final AtomicLong rejectedProbes = new AtomicLong(); // 队列已满被丢弃的探测数
+
+    public ProbeBulkhead(String bankId, int probeConcurrency, int queueCapacity, int poolLimit, int routerLimit,
+                         Registry<ConnectionSocketFactory> registry, DnsResolver dnsResolver) {
+        this.bankId = bankId;
+        this.probeConcurrency = probeConcurrency;
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(probeConcurrency, probeConcurrency, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+            Thread thread = new Thread(runnable, "probe-" + bankId + "-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.AbortPolicy());
+        this.executor.allowCoreThreadTimeOut(true);
+        this.connectionManager = new MeteredConnectionManager(registry, dnsResolver);
+        this.connectionManager.setMaxTotal(poolLimit);
+        this.connectionManager.setDefaultMaxPerRoute(routerLimit);
+    }
+
+    /**
+     * 提交探测任务，记录排队等待耗时；队列已满时丢弃任务，返回以RejectedExecutionException结束的future
+     */
+    public CompletableFuture<Void> submit(Runnable task) {
+        long submitTime = System.currentTimeMillis();
+        try {
+            return CompletableFuture.runAsync(() -> {
+                queueWaits.record(System.currentTimeMillis() - submitTime);
+                task.run();
+            }, executor);
+        } catch (RejectedExecutionException e) {
+            rejectedProbes.incrementAndGet();
+            CompletableFuture<Void> rejected = new CompletableFuture<>();
+            rejected.completeExceptionally(e);
+            return rejected;
+        }
+    }
+
+    /**
+     * 提交一轮探测任务：按探测并发数分成若干条通道，每条通道上一个任务完成后再提交下一个，
+     * 同时排队的任务不超过并发数，URL数量超过队列容量的资方也不会有探测被丢弃。
+     * 全部任务结束后完成，有任务失败时以第一个异常结束
+     */
+    public CompletableFuture<Void> submitAll(List<Runnable> tasks) {
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        if (tasks.isEmpty()) {
+            done.complete(null);
+            return done;
+        }
+        Queue<Runnable> pending = new ConcurrentLinkedQueue<>(tasks);
+        AtomicInteger remaining = new AtomicInteger(tasks.size());
+        AtomicReference<Throwable> firstError = new AtomicReference<>();
+        for (int i = 0; i < Math.min(probeConcurrency, tasks.size()); i++) {
+            submitNext(pending, remaining, firstError, done);
+        }
+        return done;
+    }
+
+    private void submitNext(Queue<Runnable> pending, AtomicInteger remaining,
+                            AtomicReference<Throwable> firstError, CompletableFuture<Void> done) {
+        Runnable task = pending.poll();
+        if (task == null) {
+            return;
+        }
+        submit(task).whenComplete((ignored, e) -> {
+            if (e != null) {
+                firstError.compareAndSet(null, e);
+            }
+            if (remaining.decrementAndGet() > 0) {
+                submitNext(pending, remaining, firstError, done);
+            } else if (firstError.get() == null) {
+                done.complete(null);
+            } else {
+                done.completeExceptionally(firstError.get());
+            }
+        });
+    }
+
+    /**
+     * 开始一轮探测，上一轮未完成时返回false
+     */
+    public boolean tryStartRound() {
+        return roundInFlight.compareAndSet(false, true);
+    }
+
+    public void finishRound() {
+        roundInFlight.set(false);
+    }
+
+    public PoolingHttpClientConnectionManager getConnectionManager() {
+        return connectionManager;
+    }
+
+    public BulkheadMetrics getMetrics(String bankName) {
+        PoolStats stats = connectionManager.getTotalStats();
+        return new BulkheadMetrics(bankId, bankName, roundInFlight.get(),
+                probeConcurrency, executor.getActiveCount(), executor.getQueue().size(),
+                executor.getQueue().size() + executor.getQueue().remainingCapacity(), rejectedProbes.get(),
+                Math.max(0, queueWaits.getPercentile(99)),
+                stats.getMax(), stats.getLeased(), stats.getPending(), stats.getAvailable(),
+                Math.max(0, connectionManager.leaseWaits.getPercentile(99)));
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+        connectionManager.shutdown();
+    }
+
+    // 记录从连接池获取连接的等待耗时
+    private static class MeteredConnectionManager extends PoolingHttpClientConnectionManager {
+        private final RollingPercentile leaseWaits = new RollingPercentile(WAIT_WINDOW);
+
+        MeteredConnectionManager(Registry<ConnectionSocketFactory> registry, DnsResolver dnsResolver) {
+            super(registry, dnsResolver);
+        }
+
+        @Override
+        public ConnectionRequest requestConnection(HttpRoute route, Object state) {
+            ConnectionRequest delegate = super.requestConnection(route, state);
+            return new ConnectionRequest() {
+                @Override
+                public HttpClientConnection get(long timeout, TimeUnit timeUnit)
+                        throws InterruptedException, ExecutionException, ConnectionPoolTimeoutException {
+                    long startTime = System.currentTimeMillis();
+                    try {
+                        return delegate.get(timeout, timeUnit);
+                    } finally {
+                        leaseWaits.record(System.currentTimeMillis() - startTime);
+                    }
+                }
+
+                @Override
+                public boolean cancel() {
+                    return delegate.cancel();
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.example.healthcheck.service;
+
+import com.example.healthcheck.config.BankUrlConfig;
+import com.example.healthcheck.dto.BulkheadMetrics;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.protocol.HttpContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.converter.StringHttpMessageConverter;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * 按资方隔离探测资源：每个资方独立的连接池分区、探测线程和RestTemplate，
+ * 某个资方的后端挂起时只会占满自己的连接和线程
+ */
+@Service
+public class ProbeBulkheadManager {
+
+    @Value("${health.restTemplate.socketTimeout}")
+    private int socketTimeout;
+
+    @Value("${health.restTemplate.connectionTimeout}")
+    private int connectionTimeout;
+
+    @Value("${health.restTemplate.connectionRequestTimeout}")
+    private int connectionRequestTimeout;
+
+    @Value("${health.bulkhead.pool-limit}")
+    private int defaultPoolLimit;// 每个资方的连接池上限，可在资方配置中覆盖
+
+    @Value("${health.bulkhead.router-limit}")
+    private int defaultRouterLimit;// 每个资方的单路由连接上限
+
+    @Value("${health.bulkhead.probe-concurrency}")
+    private int defaultProbeConcurrency;// 每个资方的探测并发数
+
+    @Value("${health.bulkhead.queue-capacity}")
+    private int queueCapacity;// 每个资方的探测队列容量，已满时丢弃探测
+
+    private static final Logger logger = LoggerFactory.getLogger(ProbeBulkheadManager.class);
+    private final BankUrlManager bankUrlManager;
+    private final DnsCache dnsCache;
+    private final AdaptiveTimeoutManager adaptiveTimeoutManager;
+    private final Map<String, ProbeBulkhead> bulkheads = new ConcurrentHashMap<>();
+    private final Map<String, RestTemplate> restTemplates = new ConcurrentHashMap<>();
+
+    public ProbeBulkheadManager(BankUrlManager bankUrlManager, DnsCache dnsCache,
+                                AdaptiveTimeoutManager adaptiveTimeoutManager) {
+        this.bankUrlManager = bankUrlManager;
+        this.dnsCache = dnsCache;
+        this.adaptiveTimeoutManager = adaptiveTimeoutManager;
+    }
+
+    @PostConstruct
+    public void init() {
+        Registry<ConnectionSocketFactory> registry = RegistryBuilder.<ConnectionSocketFactory>create()
+                .register("http", PlainConnectionSocketFactory.getSocketFactory())
+                .register("https", SSLConnectionSocketFactory.getSocketFactory())
+                .build();
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setSocketTimeout(socketTimeout)
+                .setConnectTimeout(connectionTimeout)
+                .setConnectionRequestTimeout(connectionRequestTimeout)
+                .build();
+
+        bankUrlManager.getAllBankConfigs().forEach((bankId, config) -> {
+            int poolLimit = Optional.ofNullable(config.getPoolLimit()).orElse(defaultPoolLimit);
+            int routerLimit = Optional.ofNullable(config.getRouterLimit()).orElse(defaultRouterLimit);
+            int probeConcurrency = Optional.ofNullable(config.getProbeConcurrency()).orElse(defaultProbeConcurrency);
+
+            ProbeBulkhead bulkhead = new ProbeBulkhead(bankId, probeConcurrency, queueCapacity, poolLimit, routerLimit, registry, dnsCache);
+            RestTemplate restTemplate = new RestTemplate(new AdaptiveTimeoutRequestFactory(adaptiveTimeoutManager,
+                    HttpClientBuilder.create()
+                            .setDefaultRequestConfig(requestConfig)
+                            .setConnectionManager(bulkhead.getConnectionManager())
+                            .build()));
+            restTemplate.getMessageConverters().set(1, new StringHttpMessageConverter(StandardCharsets.UTF_8));
+
+            bulkheads.put(bankId, bulkhead);
+            restTemplates.put(bankId, restTemplate);
+            logger.info("资方 {} 探测舱壁: 连接池 {}/{}，探测并发 {}，队列 {}",
+                    config.getBankName(), poolLimit, routerLimit, probeConcurrency, queueCapacity);
+        });
+    }
+
+    public ProbeBulkhead getBulkhead(String bankId) {
+        return bulkheads.get(bankId);
+    }
+
+    public RestTemplate getRestTemplate(String bankId) {
+        return restTemplates.get(bankId);
+    }
+
+    public List<BulkheadMetrics> getMetrics() {
+        return bulkheads.entrySet().stream()
+                .map(entry -> {
+                    BankUrlConfig.BankConfig config = bankUrlManager.getBankConfig(entry.getKey());
+                    return entry.getValue().getMetrics(config == null ? null : config.getBankName());
+                })
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * 执行探测请求，期间自适应超时按配置中的URL查找，不受请求URI编码的影响
+     */
+    public <T> T withProbeUrl(String url, Supplier<T> probe) {
+        AdaptiveTimeoutRequestFactory.CURRENT_URL.set(url);
+        try {
+            return probe.get();
+        } finally {
+            AdaptiveTimeoutRequestFactory.CURRENT_URL.remove();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        bulkheads.values().forEach(ProbeBulkhead::shutdown);
+    }
+
+    // 每个探测请求按URL使用自适应超时
+    private static class AdaptiveTimeoutRequestFactory extends HttpComponentsClientHttpRequestFactory {
+        private static final ThreadLocal<String> CURRENT_URL = new ThreadLocal<>();
+        private final AdaptiveTimeoutManager adaptiveTimeoutManager;
+
+        AdaptiveTimeoutRequestFactory(AdaptiveTimeoutManager adaptiveTimeoutManager, HttpClient httpClient) {
+            super(httpClient);
+            this.adaptiveTimeoutManager = adaptiveTimeoutManager;
+        }
+
+        @Override
+        protected HttpContext createHttpContext(HttpMethod httpMethod, URI uri) {
+            HttpClientContext context = HttpClientContext.create();
+            String url = CURRENT_URL.get();
+            context.setRequestConfig(adaptiveTimeoutManager.getRequestConfig(url == null ? uri.toString() : url));
+            return context;
+        }
+    }
+}
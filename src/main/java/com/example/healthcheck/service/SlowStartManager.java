@@ -0,0 +1,73 @@
+package com.example.healthcheck.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 慢启动管理：恢复或新加入的URL在预热窗口内权重从最小比例逐步提升到配置权重
+ */
+@Service
+public class SlowStartManager {
+
+    private static final Logger logger = LoggerFactory.getLogger(SlowStartManager.class);
+
+    @Value("${loadbalancer.slow-start.window}")
+    private long window;// 预热窗口(秒)，0表示关闭
+
+    @Value("${loadbalancer.slow-start.mode}")
+    private String mode;// linear线性，exponential指数
+
+    @Value("${loadbalancer.slow-start.min-weight-percent}")
+    private int minWeightPercent;// 预热起始权重百分比
+
+    private final Map<String, Long> warmupStartTimes = new ConcurrentHashMap<>(); // URL -> 预热开始时间
+
+    /**
+     * 开始预热
+     */
+    public void startWarmup(String url) {
+        if (window <= 0) {
+            return;
+        }
+        warmupStartTimes.put(url, System.currentTimeMillis());
+        logger.info("URL进入慢启动预热: {} (窗口: {}秒, 模式: {})", url, window, mode);
+    }
+
+    /**
+     * 取消预热（URL不再健康时）
+     */
+    public void cancelWarmup(String url) {
+        warmupStartTimes.remove(url);
+    }
+
+    /**
+     * 获取权重系数，范围 (0, 1]，预热结束后为1
+     */
+    public double getWeightFactor(String url) {
+        Long startTime = warmupStartTimes.get(url);
+        if (startTime == null) {
+            return 1.0;
+        }
+
+        long windowMillis = window * 1000;
+        long elapsed = System.currentTimeMillis() - startTime;
+        if (windowMillis <= 0 || elapsed >= windowMillis) {
+            warmupStartTimes.remove(url, startTime);
+            return 1.0;
+        }
+
+        double progress = (double) elapsed / windowMillis;
+        double minFactor = Math.min(1.0, Math.max(0.01, minWeightPercent / 100.0));
+        if ("exponential".equalsIgnoreCase(mode)) {
+            // 指数增长：minFactor -> 1
+            return minFactor * Math.pow(1.0 / minFactor, progress);
+        }
+        // 线性增长：minFactor -> 1
+        return minFactor + (1.0 - minFactor) * progress;
+    }
+}
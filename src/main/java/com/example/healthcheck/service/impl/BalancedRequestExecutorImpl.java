@@ -0,0 +1,299 @@
+package com.example.healthcheck.service.impl;
+
+import com.example.healthcheck.client.LoadBalancedUris;
+import com.example.healthcheck.service.BalancedRequestExecutor;
+import com.example.healthcheck.service.BankUrlManager;
+import com.example.healthcheck.service.LoadBalancerService;
+import com.example.healthcheck.utils.RetryBudget;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.conn.ConnectTimeoutException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.converter.StringHttpMessageConverter;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import java.net.ConnectException;
+import java.net.NoRouteToHostException;
+import java.net.URI;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+@Service
+public class BalancedRequestExecutorImpl implements BalancedRequestExecutor {
+
+    @Value("${loadbalancer.executor.max-retries}")
+    private int maxRetries;// 连接失败最大重试次数
+
+    @Value("${loadbalancer.executor.hedge-enabled}")
+    private boolean hedgeEnabled;// 是否发送对冲请求
+
+    @Value("${loadbalancer.executor.hedge-percentile}")
+    private double hedgePercentile;// 超过该耗时分位数时发送对冲请求
+
+    @Value("${loadbalancer.executor.hedge-min-delay}")
+    private long hedgeMinDelay;// 对冲延迟下限(毫秒)
+
+    @Value("${loadbalancer.executor.retry-budget-ratio}")
+    private double retryBudgetRatio;// 每个请求积累的重试额度
+
+    @Value("${loadbalancer.executor.hedge-budget-ratio}")
+    private double hedgeBudgetRatio;// 每个请求积累的对冲额度
+
+    @Value("${loadbalancer.executor.budget-min-per-second}")
+    private double budgetMinPerSecond;// 每秒最低重试/对冲额度
+
+    private static final Logger logger = LoggerFactory.getLogger(BalancedRequestExecutorImpl.class);
+    private final LoadBalancerService loadBalancerService;
+    private final BankUrlManager bankUrlManager;
+    private final ThreadPoolTaskExecutor requestExecutor;
+    private final RestTemplate restTemplate;
+    private final Map<String, RetryBudget> retryBudgets = new ConcurrentHashMap<>(); // 按资方隔离的重试预算
+    private final Map<String, RetryBudget> hedgeBudgets = new ConcurrentHashMap<>(); // 按资方隔离的对冲预算
+
+    public BalancedRequestExecutorImpl(LoadBalancerService loadBalancerService,
+                                       ThreadPoolTaskExecutor requestExecutor,
+                                       @Qualifier("lbHttpClient") HttpClient httpClient,
+                                       BankUrlManager bankUrlManager) {
+        this.loadBalancerService = loadBalancerService;
+        this.bankUrlManager = bankUrlManager;
+        this.requestExecutor = requestExecutor;
+        // 使用业务请求连接池，请求工厂支持中断被淘汰的对冲请求
+        this.restTemplate = new RestTemplate(new AbortableHttpRequestFactory(httpClient));
+        this.restTemplate.getMessageConverters().set(1, new StringHttpMessageConverter(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public <T> ResponseEntity<T> execute(String bankId, HttpMethod method, HttpEntity<?> requestEntity,
+                                         Class<T> responseType, boolean idempotent) {
+        RetryBudget retryBudget = retryBudgets.computeIfAbsent(bankId,
+                k -> new RetryBudget(retryBudgetRatio, budgetMinPerSecond));
+        RetryBudget hedgeBudget = hedgeBudgets.computeIfAbsent(bankId,
+                k -> new RetryBudget(hedgeBudgetRatio, budgetMinPerSecond));
+        retryBudget.deposit();
+        hedgeBudget.deposit();
+
+        Set<String> triedUrls = new HashSet<>();
+        for (int attempt = 0; ; attempt++) {
+            String url = loadBalancerService.getNextHealthyUrlForBank(bankId, triedUrls);
+            if (url == null) {
+                throw new IllegalStateException("资方 " + bankId + " 无可用URL");
+            }
+            triedUrls.add(url);
+
+            try {
+                return executeWithHedge(bankId, url, triedUrls, method, requestEntity, responseType,
+                        idempotent, hedgeBudget);
+            } catch (ResourceAccessException e) {
+                // 仅幂等请求在连接失败时换URL重试
+                if (!idempotent || !isConnectFailure(e) || attempt >= maxRetries) {
+                    throw e;
+                }
+                if (!retryBudget.tryWithdraw()) {
+                    logger.warn("资方 {} 重试预算已耗尽，放弃重试: {}", bankId, url);
+                    throw e;
+                }
+                logger.info("连接失败，换URL重试: {} ({})", url, e.getMessage());
+            }
+        }
+    }
+
+    private <T> ResponseEntity<T> executeWithHedge(String bankId, String url, Set<String> triedUrls,
+                                                   HttpMethod method, HttpEntity<?> requestEntity,
+                                                   Class<T> responseType, boolean idempotent,
+                                                   RetryBudget hedgeBudget) {
+        Attempt<T> primary = submit(url, method, requestEntity, responseType);
+        if (!idempotent || !hedgeEnabled) {
+            return await(primary.future, primary);
+        }
+
+        // 对冲延迟取资方请求耗时分位数，样本不足时不对冲
+        long hedgeDelay = loadBalancerService.getRequestLatencyPercentile(bankId, hedgePercentile);
+        if (hedgeDelay < 0) {
+            return await(primary.future, primary);
+        }
+        hedgeDelay = Math.max(hedgeDelay, hedgeMinDelay);
+
+        try {
+            // 对冲计时从主请求开始执行时算起，线程池繁忙时排队中的请求不触发对冲
+            CompletableFuture.anyOf(primary.started, primary.future).get();
+            return primary.future.get(hedgeDelay, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // 超过对冲延迟，继续发送对冲请求
+        } catch (InterruptedException e) {
+            primary.cancel();
+            Thread.currentThread().interrupt();
+            throw new ResourceAccessException("请求被中断: " + url);
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        }
+
+        String hedgeUrl = loadBalancerService.getNextHealthyUrlForBank(bankId, triedUrls);
+        if (hedgeUrl == null || !hedgeBudget.tryWithdraw()) {
+            return await(primary.future, primary);
+        }
+        triedUrls.add(hedgeUrl);
+        logger.debug("请求超过对冲延迟 {}ms，发送对冲请求: {} -> {}", hedgeDelay, url, hedgeUrl);
+        Attempt<T> hedge;
+        try {
+            hedge = submit(hedgeUrl, method, requestEntity, responseType);
+        } catch (RejectedExecutionException e) {
+            // 线程池队列已满时放弃对冲，不再追加负载
+            logger.debug("请求线程池已满，放弃对冲请求: {}", hedgeUrl);
+            return await(primary.future, primary);
+        }
+
+        // 取先成功的响应，两个都失败时抛出后失败的异常
+        CompletableFuture<ResponseEntity<T>> winner = new CompletableFuture<>();
+        AtomicInteger failures = new AtomicInteger();
+        BiConsumer<ResponseEntity<T>, Throwable> onComplete = (response, ex) -> {
+            if (ex == null) {
+                winner.complete(response);
+            } else if (failures.incrementAndGet() == 2) {
+                winner.completeExceptionally(ex);
+            }
+        };
+        primary.future.whenComplete(onComplete);
+        hedge.future.whenComplete(onComplete);
+
+        try {
+            return await(winner, primary, hedge);
+        } finally {
+            // 取消未完成的请求
+            primary.cancel();
+            hedge.cancel();
+        }
+    }
+
+    private <T> Attempt<T> submit(String url, HttpMethod method, HttpEntity<?> requestEntity, Class<T> responseType) {
+        Attempt<T> attempt = new Attempt<>();
+        attempt.future = CompletableFuture.supplyAsync(() -> {
+            attempt.started.complete(null);
+            AbortableHttpRequestFactory.CURRENT_HANDLE.set(attempt.abortHandle);
+            long startTime = System.currentTimeMillis();
+            try {
+                HttpEntity<?> targetEntity = new HttpEntity<>(requestEntity == null ? null : requestEntity.getBody(),
+                        LoadBalancedUris.withHostHeader(requestEntity == null ? new HttpHeaders() : requestEntity.getHeaders(),
+                                bankUrlManager.getHostHeader(url)));
+                ResponseEntity<T> response = restTemplate.exchange(url, method, targetEntity, responseType);
+                loadBalancerService.recordRequestResult(url, System.currentTimeMillis() - startTime, true);
+                return response;
+            } catch (ResourceAccessException | HttpServerErrorException e) {
+                // 被取消的对冲请求不计入失败
+                if (!attempt.abortHandle.aborted) {
+                    loadBalancerService.recordRequestResult(url, System.currentTimeMillis() - startTime, false);
+                }
+                throw e;
+            } finally {
+                AbortableHttpRequestFactory.CURRENT_HANDLE.remove();
+            }
+        }, requestExecutor);
+        return attempt;
+    }
+
+    private <T> T await(Future<T> future, Attempt<?>... attempts) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            for (Attempt<?> attempt : attempts) {
+                attempt.cancel();
+            }
+            Thread.currentThread().interrupt();
+            throw new ResourceAccessException("请求被中断");
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        }
+    }
+
+    private RuntimeException unwrap(ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof RuntimeException) {
+            return (RuntimeException) cause;
+        }
+        return new IllegalStateException(cause);
+    }
+
+    // 请求未发送到服务端的连接类失败，重试是安全的
+    private boolean isConnectFailure(ResourceAccessException e) {
+        Throwable cause = e.getCause();
+        return cause instanceof ConnectException
+                || cause instanceof ConnectTimeoutException
+                || cause instanceof NoRouteToHostException
+                || cause instanceof UnknownHostException;
+    }
+
+    private static class Attempt<T> {
+        private final AbortHandle abortHandle = new AbortHandle();
+        private final CompletableFuture<Void> started = new CompletableFuture<>(); // 开始执行（已出队）
+        private CompletableFuture<ResponseEntity<T>> future;
+
+        void cancel() {
+            if (!future.isDone()) {
+                abortHandle.abort();
+                future.cancel(true);
+            }
+        }
+    }
+
+    // 持有执行中的请求，用于中断底层连接
+    private static class AbortHandle {
+        private volatile boolean aborted;
+        private volatile HttpUriRequest request;
+
+        void bind(HttpUriRequest request) {
+            this.request = request;
+            if (aborted) {
+                request.abort();
+            }
+        }
+
+        void abort() {
+            aborted = true;
+            HttpUriRequest current = request;
+            if (current != null) {
+                current.abort();
+            }
+        }
+    }
+
+    private static class AbortableHttpRequestFactory extends HttpComponentsClientHttpRequestFactory {
+        private static final ThreadLocal<AbortHandle> CURRENT_HANDLE = new ThreadLocal<>();
+
+        AbortableHttpRequestFactory(HttpClient httpClient) {
+            super(httpClient);
+        }
+
+        @Override
+        protected HttpUriRequest createHttpUriRequest(HttpMethod httpMethod, URI uri) {
+            HttpUriRequest request = super.createHttpUriRequest(httpMethod, uri);
+            AbortHandle handle = CURRENT_HANDLE.get();
+            if (handle != null) {
+                handle.bind(request);
+            }
+            return request;
+        }
+    }
+}
@@ -1,14 +1,22 @@
 package com.example.healthcheck.service.impl;
 
+import com.example.healthcheck.client.LoadBalancedUris;
 import com.example.healthcheck.dto.HealthCheckResult;
+import com.example.healthcheck.service.AdaptiveTimeoutManager;
 import com.example.healthcheck.service.BankUrlManager;
 import com.example.healthcheck.service.HealthCheckService;
+import com.example.healthcheck.service.HealthHistoryService;
+import com.example.healthcheck.service.HealthScoreManager;
 import com.example.healthcheck.service.LoadBalancerService;
+import com.example.healthcheck.service.ProbeBulkhead;
+import com.example.healthcheck.service.ProbeBulkheadManager;
 import com.example.healthcheck.utils.DateUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cloud.context.config.annotation.RefreshScope;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.scheduling.annotation.SchedulingConfigurer;
@@ -17,8 +25,13 @@ import org.springframework.stereotype.Service;
 import org.springframework.web.client.*;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
 
 @Service
 public class HealthCheckServiceImpl implements HealthCheckService, SchedulingConfigurer {
@@ -29,11 +42,13 @@ public class HealthCheckServiceImpl implements HealthCheckService, SchedulingCon
     @Value("${health.check.allow-partial-success}")
     private boolean allowPartialSuccess;
 
+    @Value("${health.bulkhead.round-wait}")
+    private long roundWait;// 等待各资方本轮探测完成的最长时间(毫秒)，超时的资方在后台继续探测
+
     private static final Logger logger = LoggerFactory.getLogger(HealthCheckServiceImpl.class);
     private final RestTemplate restTemplate;
     private final CopyOnWriteArrayList<String> activeUrls; // 当前监控的URL列表
     private final Map<String, HealthCheckResult> latestResults = new ConcurrentHashMap<>();
-    private final List<HealthCheckResult> allResults = Collections.synchronizedList(new ArrayList<>());
     private final Map<String, Integer> failureCounts = new ConcurrentHashMap<>(); // 失败计数器
     private final List<String> removedUrls = Collections.synchronizedList(new ArrayList<>()); // 被剔除的URL
 
@@ -42,19 +57,34 @@ public class HealthCheckServiceImpl implements HealthCheckService, SchedulingCon
     private final int recoverySuccessThreshold;
     private final LoadBalancerService loadBalancerService;
     private final BankUrlManager bankUrlManager;
+    private final HealthHistoryService healthHistoryService;
+    private final HealthScoreManager healthScoreManager;
+    private final TcpConnectProber tcpConnectProber;
+    private final ProbeBulkheadManager probeBulkheadManager;
+    private final AdaptiveTimeoutManager adaptiveTimeoutManager;
 
     public HealthCheckServiceImpl(RestTemplate restTemplate,
                                   CopyOnWriteArrayList<String> activeUrls,
                                   @Value("${health.check.max-failures}") int maxFailureThreshold,
                                   @Value("${health.check.recovery-threshold}") int recoverySuccessThreshold,
                                   LoadBalancerService loadBalancerService,
-                                  BankUrlManager bankUrlManager) {
+                                  BankUrlManager bankUrlManager,
+                                  HealthHistoryService healthHistoryService,
+                                  HealthScoreManager healthScoreManager,
+                                  TcpConnectProber tcpConnectProber,
+                                  ProbeBulkheadManager probeBulkheadManager,
+                                  AdaptiveTimeoutManager adaptiveTimeoutManager) {
         this.restTemplate = restTemplate;
         this.activeUrls = activeUrls;
         this.maxFailureThreshold = maxFailureThreshold;
         this.recoverySuccessThreshold = recoverySuccessThreshold;
         this.loadBalancerService = loadBalancerService;
         this.bankUrlManager = bankUrlManager;
+        this.healthHistoryService = healthHistoryService;
+        this.healthScoreManager = healthScoreManager;
+        this.tcpConnectProber = tcpConnectProber;
+        this.probeBulkheadManager = probeBulkheadManager;
+        this.adaptiveTimeoutManager = adaptiveTimeoutManager;
     }
 
     @Override
@@ -62,18 +92,41 @@ public class HealthCheckServiceImpl implements HealthCheckService, SchedulingCon
         logger.info("\n[健康检查] 开始健康检查 {}", DateUtil.nowFormat());
         logger.info("当前可用链接URLs: {}", activeUrls);
 
-        List<String> urlsToCheck = new ArrayList<>(activeUrls);
-
-        urlsToCheck.parallelStream().forEach(url -> {
-            HealthCheckResult result = checkSingleUrl(url);
+        BiConsumer<String, HealthCheckResult> handler = (url, result) -> {
+            // DNS变化后已退役的端点丢弃在途的探测结果
+            if (!isCurrentUrl(url)) {
+                return;
+            }
             latestResults.put(url, result);
-            allResults.add(result);
+            healthHistoryService.record(result);
+            healthScoreManager.record(result);
+            adaptiveTimeoutManager.record(result);
             logger.info(result.toLogString());
             handleFailureCount(url, result);
-        });
+        };
 
-        // 更新负载均衡器的健康URL列表 - 传递最新结果
-        loadBalancerService.updateHealthyUrls(activeUrls, latestResults);
+        Map<String, CompletableFuture<Void>> rounds = new LinkedHashMap<>();
+        groupByBank(new ArrayList<>(activeUrls)).forEach((bankId, bankUrls) -> {
+            ProbeBulkhead bulkhead = bankId == null ? null : probeBulkheadManager.getBulkhead(bankId);
+            if (bulkhead == null) {
+                bankUrls.forEach(url -> handler.accept(url, checkSingleUrl(url, restTemplate)));
+                return;
+            }
+            // 上一轮仍未完成（如后端挂起）的资方跳过本轮，避免探测任务堆积
+            if (!bulkhead.tryStartRound()) {
+                logger.warn("资方 {} 上一轮探测未完成，跳过本轮", getBankName(bankId));
+                return;
+            }
+            // 资方探测完成即更新该资方的健康URL列表，不等待其他资方
+            rounds.put(bankId, probeBank(bankId, bulkhead, bankUrls, handler).whenComplete((ignored, e) -> {
+                bulkhead.finishRound();
+                if (e != null) {
+                    logger.error("资方 {} 探测异常: {}", getBankName(bankId), e.getMessage());
+                }
+                loadBalancerService.updateHealthyUrlsForBank(bankId, activeUrls, latestResults);
+            }));
+        });
+        awaitRounds(rounds);
 
         logger.info("[健康检查] 健康检查完成 {}", DateUtil.nowFormat());
         // 按资方分组整理被移除的URLs
@@ -92,6 +145,8 @@ public class HealthCheckServiceImpl implements HealthCheckService, SchedulingCon
 
     // 新增：每3分钟检查被移除的URL是否恢复
     public void checkRemovedUrlsForRecovery() {
+        // DNS变化后不再使用的IP端点无需恢复
+        pruneRetiredUrls();
         if (removedUrls.isEmpty()) {
             return;
         }
@@ -102,8 +157,13 @@ public class HealthCheckServiceImpl implements HealthCheckService, SchedulingCon
         // 创建被移除URL列表的快照
         List<String> urlsToCheck = new ArrayList<>(removedUrls);
 
-        urlsToCheck.parallelStream().forEach(url -> {
-            HealthCheckResult result = checkSingleUrl(url);
+        Map<String, CompletableFuture<Void>> rounds = new LinkedHashMap<>();
+        BiConsumer<String, HealthCheckResult> handler = (url, result) -> {
+            if (!isCurrentUrl(url)) {
+                return;
+            }
+            healthHistoryService.record(result);
+            adaptiveTimeoutManager.record(result);
             logger.info("[恢复]: {}", result.toLogString());
 
             // 如果检测成功，尝试恢复URL
@@ -125,18 +185,95 @@ public class HealthCheckServiceImpl implements HealthCheckService, SchedulingCon
                 // 检测失败则重置恢复计数
                 failureCounts.remove(url + "_recovery");
             }
+        };
+        groupByBank(urlsToCheck).forEach((bankId, bankUrls) -> {
+            ProbeBulkhead bulkhead = bankId == null ? null : probeBulkheadManager.getBulkhead(bankId);
+            if (bulkhead == null) {
+                bankUrls.forEach(url -> handler.accept(url, checkSingleUrl(url, restTemplate)));
+                return;
+            }
+            // 与常规探测共用轮次保护，资方仍在探测时留到下次恢复检测
+            if (!bulkhead.tryStartRound()) {
+                logger.warn("资方 {} 探测未完成，跳过本次恢复检测", getBankName(bankId));
+                return;
+            }
+            rounds.put(bankId, probeBank(bankId, bulkhead, bankUrls, handler).whenComplete((ignored, e) -> {
+                bulkhead.finishRound();
+                if (e != null) {
+                    logger.error("资方 {} 恢复检测异常: {}", getBankName(bankId), e.getMessage());
+                }
+            }));
         });
+        awaitRounds(rounds);
         logger.info("[恢复检测] 完成恢复检测: {}", DateUtil.nowFormat());
     }
 
+    // 按资方分组，未关联资方的URL归入null组
+    private Map<String, List<String>> groupByBank(List<String> urls) {
+        Map<String, List<String>> urlsByBank = new LinkedHashMap<>();
+        urls.forEach(url -> urlsByBank.computeIfAbsent(bankUrlManager.getBankIdForUrl(url), k -> new ArrayList<>()).add(url));
+        return urlsByBank;
+    }
+
+    // 在资方舱壁内探测：tcp由单线程Selector批量探测，http按探测并发数分通道提交到资方探测线程并使用资方独立的连接池
+    private CompletableFuture<Void> probeBank(String bankId, ProbeBulkhead bulkhead, List<String> urls,
+                                              BiConsumer<String, HealthCheckResult> handler) {
+        if (isTcpProbe(bankId)) {
+            return bulkhead.submit(() -> tcpConnectProber.probe(urls)
+                    .forEach(result -> handler.accept(result.getUrl(), result)));
+        }
+        RestTemplate bankRestTemplate = probeBulkheadManager.getRestTemplate(bankId);
+        return bulkhead.submitAll(urls.stream()
+                .<Runnable>map(url -> () -> handler.accept(url, checkSingleUrl(url, bankRestTemplate)))
+                .collect(Collectors.toList()));
+    }
+
+    // 等待各资方本轮探测完成，超时的资方不阻塞本轮，结果在完成后再更新
+    private void awaitRounds(Map<String, CompletableFuture<Void>> rounds) {
+        try {
+            CompletableFuture.allOf(rounds.values().toArray(new CompletableFuture<?>[0])).get(roundWait, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            List<String> running = rounds.entrySet().stream()
+                    .filter(entry -> !entry.getValue().isDone())
+                    .map(entry -> getBankName(entry.getKey()))
+                    .collect(Collectors.toList());
+            logger.warn("资方探测未在{}ms内完成，后台继续: {}", roundWait, running);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            // 单个资方的异常已在各自的回调中处理
+        }
+    }
+
+    private String getBankName(String bankId) {
+        return bankUrlManager.getBankConfig(bankId).getBankName();
+    }
+
+    private boolean isCurrentUrl(String url) {
+        String bankId = bankUrlManager.getBankIdForUrl(url);
+        return bankId != null && bankUrlManager.getBankUrls(bankId).contains(url);
+    }
+
+    // 清除已退役端点的剔除记录、最近结果和计数
+    private void pruneRetiredUrls() {
+        removedUrls.removeIf(url -> !isCurrentUrl(url));
+        latestResults.keySet().removeIf(url -> !isCurrentUrl(url));
+        failureCounts.keySet().removeIf(key -> !isCurrentUrl(key.endsWith("_recovery")
+                ? key.substring(0, key.length() - "_recovery".length()) : key));
+    }
+
+    private boolean isTcpProbe(String bankId) {
+        return "tcp".equalsIgnoreCase(bankUrlManager.getBankConfig(bankId).getProbeType());
+    }
+
     // 处理失败计数和自动剔除逻辑 - 优化版
     private void handleFailureCount(String url, HealthCheckResult result) {
         String bankId = bankUrlManager.getBankIdForUrl(url);
-        String bankName = bankUrlManager.getBankConfig(bankId).getBankName();
         if (bankId == null) {
             logger.warn("URL {} 未关联到任何资方", url);
             return;
         }
+        String bankName = bankUrlManager.getBankConfig(bankId).getBankName();
 
         // 只对连接问题（DOWN状态）进行失败计数
         if ("DOWN".equals(result.getStatus())) {
@@ -162,6 +299,12 @@ public class HealthCheckServiceImpl implements HealthCheckService, SchedulingCon
     }
 
     public HealthCheckResult checkSingleUrl(String url) {
+        String bankId = bankUrlManager.getBankIdForUrl(url);
+        RestTemplate bankRestTemplate = bankId == null ? null : probeBulkheadManager.getRestTemplate(bankId);
+        return checkSingleUrl(url, bankRestTemplate != null ? bankRestTemplate : restTemplate);
+    }
+
+    private HealthCheckResult checkSingleUrl(String url, RestTemplate restTemplate) {
         long startTime = System.currentTimeMillis();
         String status = "DOWN";
         int statusCode = 0;
@@ -169,11 +312,14 @@ public class HealthCheckServiceImpl implements HealthCheckService, SchedulingCon
         boolean isConnectionIssue = false;
 
         try {
-            ResponseEntity<String> response = restTemplate.postForEntity(
+            // 按IP展开的端点携带原域名的Host头
+            HttpHeaders headers = LoadBalancedUris.withHostHeader(new HttpHeaders(), bankUrlManager.getHostHeader(url));
+            // 自适应超时按配置中的URL查找
+            ResponseEntity<String> response = probeBulkheadManager.withProbeUrl(url, () -> restTemplate.postForEntity(
                     url,
-                    null,
+                    new HttpEntity<>(headers),
                     String.class
-            );
+            ));
 
             HttpStatus httpStatus = response.getStatusCode();
             statusCode = httpStatus.value();
@@ -213,8 +359,11 @@ public class HealthCheckServiceImpl implements HealthCheckService, SchedulingCon
     }
 
     private String analyzeException(ResourceAccessException e) {
-        Throwable cause = e.getCause();
+        return analyzeConnectionFailure(e.getCause(), e.getMessage());
+    }
 
+    // 连接类异常原因分析，HTTP探测与TCP探测共用
+    static String analyzeConnectionFailure(Throwable cause, String message) {
         if (cause instanceof java.net.ConnectException) {
             return "连接被拒绝: 服务未启动或端口关闭";
         } else if (cause instanceof java.net.SocketTimeoutException) {
@@ -222,7 +371,7 @@ public class HealthCheckServiceImpl implements HealthCheckService, SchedulingCon
         } else if (cause instanceof java.net.UnknownHostException) {
             return "未知主机: 域名解析失败";
         }
-        return "连接失败: " + e.getMessage();
+        return "连接失败: " + message;
     }
 
     // 判断HTTP状态码是否成功
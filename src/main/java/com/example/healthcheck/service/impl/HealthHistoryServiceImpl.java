@@ -0,0 +1,445 @@
+package com.example.healthcheck.service.impl;
+
+import com.example.healthcheck.config.BankUrlConfig;
+import com.example.healthcheck.dto.HealthCheckResult;
+import com.example.healthcheck.dto.HealthHistoryPoint;
+import com.example.healthcheck.history.RollupBucket;
+import com.example.healthcheck.history.RollupResolution;
+import com.example.healthcheck.history.SegmentLog;
+import com.example.healthcheck.service.BankUrlManager;
+import com.example.healthcheck.service.HealthHistoryService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * 探测结果历史：原始结果追加写入内存映射段文件，同时在内存中汇总1m/1h/1d数据，
+ * 周期结束后写入各自的段文件，查询只读取汇总数据。
+ * 每次落盘时把未结束周期的汇总连同原始日志写入位置保存到快照文件，
+ * 启动时从快照恢复并重放之后的原始记录，进程异常退出也不会丢失未结束周期的汇总
+ */
+@Service
+public class HealthHistoryServiceImpl implements HealthHistoryService {
+
+    @Value("${health.history.enabled}")
+    private boolean enabled;
+
+    @Value("${health.history.dir}")
+    private String dir;// 历史数据目录
+
+    @Value("${health.history.segment-size-mb}")
+    private int segmentSizeMb;// 单个段文件大小(MB)
+
+    @Value("${health.history.retention.raw}")
+    private int rawRetentionDays;// 原始数据保留天数
+
+    @Value("${health.history.retention.minute}")
+    private int minuteRetentionDays;
+
+    @Value("${health.history.retention.hour}")
+    private int hourRetentionDays;
+
+    @Value("${health.history.retention.day}")
+    private int dayRetentionDays;
+
+    private static final Logger logger = LoggerFactory.getLogger(HealthHistoryServiceImpl.class);
+    // 原始记录格式：timestamp(8) urlId(4) responseTime(4) statusCode(2) status(1) connectionIssue(1)
+    private static final int RAW_RECORD_SIZE = 20;
+    private static final String URL_DICT_FILE = "urls.dict";
+    private static final String SNAPSHOT_FILE = "rollups.snap";
+    private static final int SNAPSHOT_VERSION = 1;
+    private static final List<String> STATUS_CODES = Collections.unmodifiableList(
+            Arrays.asList("UP", "ERROR", "DOWN", "UNKNOWN"));
+
+    private final BankUrlManager bankUrlManager;
+    private final Map<String, Integer> urlIds = new ConcurrentHashMap<>(); // URL -> 编号
+    private final List<String> urlsById = new CopyOnWriteArrayList<>();
+    private final Map<RollupResolution, SegmentLog> rollupLogs = new EnumMap<>(RollupResolution.class);
+    private final Map<RollupResolution, Map<Integer, RollupBucket>> openBuckets = new EnumMap<>(RollupResolution.class); // 未结束周期的汇总
+    private final Map<RollupResolution, List<RollupBucket>> finishedBuckets = new EnumMap<>(RollupResolution.class); // 已结束、待落盘的汇总
+    private SegmentLog rawLog;
+    private SegmentLog.Position snapshotPosition; // 快照已包含的原始日志位置
+    private Path dictFile;
+    private Path snapshotFile;
+
+    public HealthHistoryServiceImpl(BankUrlManager bankUrlManager) {
+        this.bankUrlManager = bankUrlManager;
+    }
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            Path root = Paths.get(dir);
+            long segmentBytes = segmentSizeMb * 1024L * 1024L;
+            rawLog = new SegmentLog(root.resolve("raw"), RAW_RECORD_SIZE, segmentBytes);
+            for (RollupResolution resolution : RollupResolution.values()) {
+                rollupLogs.put(resolution, new SegmentLog(root.resolve(resolution.getCode()), RollupBucket.RECORD_SIZE, segmentBytes));
+                openBuckets.put(resolution, new HashMap<>());
+                finishedBuckets.put(resolution, new ArrayList<>());
+            }
+            dictFile = root.resolve(URL_DICT_FILE);
+            if (Files.exists(dictFile)) {
+                for (String url : Files.readAllLines(dictFile, StandardCharsets.UTF_8)) {
+                    urlIds.put(url, urlsById.size());
+                    urlsById.add(url);
+                }
+            }
+            snapshotFile = root.resolve(SNAPSHOT_FILE);
+            int replayed = restore();
+            logger.info("健康历史数据目录: {} (已知URL: {}，重放原始记录: {})", root.toAbsolutePath(), urlsById.size(), replayed);
+        } catch (IOException e) {
+            logger.error("健康历史数据初始化失败，已关闭历史记录: {}", e.getMessage());
+            enabled = false;
+        }
+    }
+
+    @Override
+    public void record(HealthCheckResult result) {
+        if (!enabled) {
+            return;
+        }
+        long timestamp = result.getTimestamp().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        boolean error = !"UP".equals(result.getStatus());
+        try {
+            int urlId = getOrCreateUrlId(result.getUrl());
+            int statusIndex = STATUS_CODES.indexOf(result.getStatus());
+            // 原始记录与汇总在同一把锁内更新，保证快照位置之前的记录都已计入汇总
+            synchronized (openBuckets) {
+                rawLog.append(timestamp, (buffer, offset) -> {
+                    buffer.putInt(offset, urlId);
+                    buffer.putInt(offset + 4, (int) Math.min(Integer.MAX_VALUE, result.getResponseTime()));
+                    buffer.putShort(offset + 8, (short) result.getStatusCode());
+                    buffer.put(offset + 10, (byte) (statusIndex < 0 ? STATUS_CODES.size() - 1 : statusIndex));
+                    buffer.put(offset + 11, (byte) (result.isConnectionIssue() ? 1 : 0));
+                });
+                addToBuckets(urlId, timestamp, result.getResponseTime(), error);
+            }
+        } catch (IOException e) {
+            logger.warn("写入健康历史数据失败: {} ({})", result.getUrl(), e.getMessage());
+        }
+    }
+
+    @Override
+    public void flushRollups() {
+        if (!enabled) {
+            return;
+        }
+        flush(System.currentTimeMillis());
+    }
+
+    @Override
+    public void deleteExpiredSegments() {
+        if (!enabled) {
+            return;
+        }
+        LocalDate today = LocalDate.now();
+        try {
+            int deleted = rawLog.deleteBefore(today.minusDays(rawRetentionDays))
+                    + rollupLogs.get(RollupResolution.MINUTE).deleteBefore(today.minusDays(minuteRetentionDays))
+                    + rollupLogs.get(RollupResolution.HOUR).deleteBefore(today.minusDays(hourRetentionDays))
+                    + rollupLogs.get(RollupResolution.DAY).deleteBefore(today.minusDays(dayRetentionDays));
+            if (deleted > 0) {
+                logger.info("已删除过期的健康历史段文件: {}个", deleted);
+            }
+        } catch (IOException e) {
+            logger.warn("删除过期健康历史数据失败: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public List<HealthHistoryPoint> query(String url, String bankId, LocalDateTime from, LocalDateTime to, String resolution) {
+        if (!enabled) {
+            return Collections.emptyList();
+        }
+        ZoneId zone = ZoneId.systemDefault();
+        long fromMillis = from.atZone(zone).toInstant().toEpochMilli();
+        long toMillis = to.atZone(zone).toInstant().toEpochMilli();
+        RollupResolution rollupResolution = StringUtils.isEmpty(resolution)
+                ? chooseResolution(toMillis - fromMillis)
+                : RollupResolution.fromCode(resolution);
+
+        Set<Integer> ids = resolveUrlIds(url, bankId);
+        if (ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        // 同一周期内多个URL（或重启前后写入的同一周期）合并为一个点
+        Map<Long, RollupBucket> merged = new TreeMap<>();
+        long scanFrom = rollupResolution.bucketStart(fromMillis);
+        try {
+            rollupLogs.get(rollupResolution).scan(scanFrom, toMillis, (timestamp, buffer, offset) -> {
+                if (ids.contains(RollupBucket.readUrlId(buffer, offset))) {
+                    merged.computeIfAbsent(timestamp, k -> new RollupBucket(-1, k))
+                            .merge(RollupBucket.readBody(timestamp, buffer, offset));
+                }
+            });
+        } catch (IOException e) {
+            throw new IllegalStateException("读取健康历史数据失败: " + e.getMessage(), e);
+        }
+        synchronized (openBuckets) {
+            Stream.concat(openBuckets.get(rollupResolution).values().stream(),
+                            finishedBuckets.get(rollupResolution).stream())
+                    .filter(bucket -> ids.contains(bucket.getUrlId()))
+                    .filter(bucket -> bucket.getBucketStart() >= scanFrom && bucket.getBucketStart() < toMillis)
+                    .forEach(bucket -> merged.computeIfAbsent(bucket.getBucketStart(), k -> new RollupBucket(-1, k))
+                            .merge(bucket));
+        }
+
+        return merged.values().stream().map(bucket -> new HealthHistoryPoint(
+                LocalDateTime.ofInstant(Instant.ofEpochMilli(bucket.getBucketStart()), zone),
+                bucket.getCount(),
+                bucket.getErrors(),
+                bucket.getCount() == 0 ? 0 : 1.0 - (double) bucket.getErrors() / bucket.getCount(),
+                bucket.getMinLatency(),
+                bucket.getMaxLatency(),
+                bucket.getCount() == 0 ? 0 : bucket.getSumLatency() / bucket.getCount(),
+                bucket.getSketch().quantile(50),
+                bucket.getSketch().quantile(95),
+                bucket.getSketch().quantile(99)
+        )).collect(Collectors.toList());
+    }
+
+    @PreDestroy
+    public void close() {
+        if (!enabled) {
+            return;
+        }
+        // 未结束的周期写入快照，重启后继续汇总
+        flush(System.currentTimeMillis());
+        try {
+            rawLog.close();
+            for (SegmentLog log : rollupLogs.values()) {
+                log.close();
+            }
+        } catch (IOException e) {
+            logger.warn("关闭健康历史数据文件失败: {}", e.getMessage());
+        }
+    }
+
+    // 把汇总计入对应周期，周期结束的汇总移入待落盘列表
+    private void addToBuckets(int urlId, long timestamp, long responseTime, boolean error) {
+        for (RollupResolution resolution : RollupResolution.values()) {
+            long bucketStart = resolution.bucketStart(timestamp);
+            Map<Integer, RollupBucket> buckets = openBuckets.get(resolution);
+            RollupBucket bucket = buckets.get(urlId);
+            if (bucket == null || bucketStart > bucket.getBucketStart()) {
+                if (bucket != null) {
+                    finishedBuckets.get(resolution).add(bucket);
+                }
+                bucket = new RollupBucket(urlId, bucketStart);
+                buckets.put(urlId, bucket);
+            }
+            bucket.add(responseTime, error);
+        }
+    }
+
+    // 写入已结束周期的汇总，再保存未结束周期的快照
+    private synchronized void flush(long now) {
+        Map<RollupResolution, List<RollupBucket>> finished = new EnumMap<>(RollupResolution.class);
+        Map<RollupResolution, List<RollupBucket>> open = new EnumMap<>(RollupResolution.class);
+        SegmentLog.Position position;
+        synchronized (openBuckets) {
+            for (RollupResolution resolution : RollupResolution.values()) {
+                List<RollupBucket> done = new ArrayList<>(finishedBuckets.get(resolution));
+                finishedBuckets.get(resolution).clear();
+                openBuckets.get(resolution).values().removeIf(bucket -> {
+                    if (resolution.bucketEnd(bucket.getBucketStart()) <= now) {
+                        done.add(bucket);
+                        return true;
+                    }
+                    return false;
+                });
+                finished.put(resolution, done);
+                open.put(resolution, openBuckets.get(resolution).values().stream()
+                        .map(this::copyOf)
+                        .collect(Collectors.toList()));
+            }
+            position = rawLog.position() != null ? rawLog.position() : snapshotPosition;
+        }
+        try {
+            // 先写已结束的汇总再替换快照；两步之间异常退出时，重放产生的重复汇总在恢复时跳过
+            writeRollups(finished);
+            writeSnapshot(position, open);
+            snapshotPosition = position;
+        } catch (IOException e) {
+            logger.warn("写入健康历史汇总数据失败: {}", e.getMessage());
+        }
+    }
+
+    // 从快照恢复未结束周期的汇总，并重放快照之后的原始记录，返回重放数量
+    private int restore() throws IOException {
+        if (Files.exists(snapshotFile)) {
+            snapshotPosition = readSnapshot();
+        }
+        int[] replayed = new int[1];
+        synchronized (openBuckets) {
+            rawLog.scanAfter(snapshotPosition, (timestamp, buffer, offset) -> {
+                boolean error = buffer.get(offset + 10) != STATUS_CODES.indexOf("UP");
+                addToBuckets(buffer.getInt(offset), timestamp, buffer.getInt(offset + 4), error);
+                replayed[0]++;
+            });
+            for (RollupResolution resolution : RollupResolution.values()) {
+                finishedBuckets.get(resolution).removeAll(findPersisted(resolution, finishedBuckets.get(resolution)));
+            }
+        }
+        if (replayed[0] > 0) {
+            flush(System.currentTimeMillis());
+        }
+        return replayed[0];
+    }
+
+    // 已写入汇总段文件的周期（上次落盘在写快照前中断时会出现）
+    private List<RollupBucket> findPersisted(RollupResolution resolution, List<RollupBucket> buckets) throws IOException {
+        if (buckets.isEmpty()) {
+            return Collections.emptyList();
+        }
+        long from = buckets.stream().mapToLong(RollupBucket::getBucketStart).min().getAsLong();
+        long to = buckets.stream().mapToLong(RollupBucket::getBucketStart).max().getAsLong() + 1;
+        Set<String> persisted = new HashSet<>();
+        rollupLogs.get(resolution).scan(from, to, (timestamp, buffer, offset) ->
+                persisted.add(RollupBucket.readUrlId(buffer, offset) + "@" + timestamp));
+        return buckets.stream()
+                .filter(bucket -> persisted.contains(bucket.getUrlId() + "@" + bucket.getBucketStart()))
+                .collect(Collectors.toList());
+    }
+
+    // 快照格式：version(4) 位置[epochDay(8) seq(4) offset(4)] count(4) 汇总[resolution(1) bucketStart(8) body]...
+    private void writeSnapshot(SegmentLog.Position position, Map<RollupResolution, List<RollupBucket>> open) throws IOException {
+        int count = open.values().stream().mapToInt(List::size).sum();
+        int entrySize = 1 + RollupBucket.RECORD_SIZE;
+        ByteBuffer buffer = ByteBuffer.allocate(24 + count * entrySize);
+        buffer.putInt(0, SNAPSHOT_VERSION);
+        buffer.putLong(4, position == null ? -1 : position.getDay().toEpochDay());
+        buffer.putInt(12, position == null ? 0 : position.getSeq());
+        buffer.putInt(16, position == null ? 0 : position.getOffset());
+        buffer.putInt(20, count);
+        int offset = 24;
+        for (Map.Entry<RollupResolution, List<RollupBucket>> entry : open.entrySet()) {
+            for (RollupBucket bucket : entry.getValue()) {
+                buffer.put(offset, (byte) entry.getKey().ordinal());
+                buffer.putLong(offset + 1, bucket.getBucketStart());
+                bucket.writeBody(buffer, offset + 9);
+                offset += entrySize;
+            }
+        }
+        // 先写临时文件再原子替换，避免快照写一半
+        Path tmp = snapshotFile.resolveSibling(SNAPSHOT_FILE + ".tmp");
+        Files.write(tmp, buffer.array());
+        Files.move(tmp, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private SegmentLog.Position readSnapshot() throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(snapshotFile));
+        if (buffer.limit() < 24 || buffer.getInt(0) != SNAPSHOT_VERSION) {
+            logger.warn("健康历史快照格式不兼容，忽略: {}", snapshotFile);
+            return null;
+        }
+        long epochDay = buffer.getLong(4);
+        SegmentLog.Position position = epochDay < 0 ? null
+                : new SegmentLog.Position(LocalDate.ofEpochDay(epochDay), buffer.getInt(12), buffer.getInt(16));
+        int count = buffer.getInt(20);
+        int entrySize = 1 + RollupBucket.RECORD_SIZE;
+        for (int i = 0, offset = 24; i < count; i++, offset += entrySize) {
+            RollupResolution resolution = RollupResolution.values()[buffer.get(offset)];
+            RollupBucket bucket = RollupBucket.readBody(buffer.getLong(offset + 1), buffer, offset + 9);
+            openBuckets.get(resolution).put(bucket.getUrlId(), bucket);
+        }
+        return position;
+    }
+
+    private RollupBucket copyOf(RollupBucket bucket) {
+        RollupBucket copy = new RollupBucket(bucket.getUrlId(), bucket.getBucketStart());
+        copy.merge(bucket);
+        return copy;
+    }
+
+    private void writeRollups(Map<RollupResolution, List<RollupBucket>> buckets) throws IOException {
+        for (Map.Entry<RollupResolution, List<RollupBucket>> entry : buckets.entrySet()) {
+            SegmentLog log = rollupLogs.get(entry.getKey());
+            for (RollupBucket bucket : entry.getValue()) {
+                log.append(bucket.getBucketStart(), bucket::writeBody);
+            }
+        }
+    }
+
+    private RollupResolution chooseResolution(long rangeMillis) {
+        if (rangeMillis <= 6 * RollupResolution.HOUR.getPeriodMillis()) {
+            return RollupResolution.MINUTE;
+        }
+        if (rangeMillis <= 7 * RollupResolution.DAY.getPeriodMillis()) {
+            return RollupResolution.HOUR;
+        }
+        return RollupResolution.DAY;
+    }
+
+    private Set<Integer> resolveUrlIds(String url, String bankId) {
+        Set<String> urls = new HashSet<>();
+        if (!StringUtils.isEmpty(url)) {
+            urls.add(url);
+        }
+        if (!StringUtils.isEmpty(bankId)) {
+            BankUrlConfig.BankConfig config = bankUrlManager.getBankConfig(bankId);
+            if (config == null) {
+                throw new IllegalArgumentException("资方不存在: " + bankId);
+            }
+            urls.addAll(config.getUrlStrings());
+            urls.addAll(bankUrlManager.getBankUrls(bankId));
+        }
+        return urls.stream()
+                .map(urlIds::get)
+                .filter(id -> id != null)
+                .collect(Collectors.toSet());
+    }
+
+    private int getOrCreateUrlId(String url) throws IOException {
+        Integer id = urlIds.get(url);
+        if (id != null) {
+            return id;
+        }
+        synchronized (urlsById) {
+            id = urlIds.get(url);
+            if (id == null) {
+                Files.write(dictFile, Collections.singletonList(url), StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+                id = urlsById.size();
+                urlsById.add(url);
+                urlIds.put(url, id);
+            }
+            return id;
+        }
+    }
+}
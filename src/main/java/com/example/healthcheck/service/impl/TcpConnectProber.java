@@ -0,0 +1,189 @@
+package com.example.healthcheck.service.impl;
+
+import com.example.healthcheck.dto.HealthCheckResult;
+import com.example.healthcheck.service.AdaptiveTimeoutManager;
+import com.example.healthcheck.service.DnsCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * TCP连接探测：单线程通过一个Selector对大批URL并发发起非阻塞连接，
+ * 握手成功即视为存活，不占用HTTP连接池
+ */
+@Component
+public class TcpConnectProber {
+
+    @Value("${health.tcp-probe.max-in-flight}")
+    private int maxInFlight;// 同时进行中的连接数上限，受进程文件句柄数限制
+
+    private static final Logger logger = LoggerFactory.getLogger(TcpConnectProber.class);
+    private final DnsCache dnsCache;
+    private final AdaptiveTimeoutManager adaptiveTimeoutManager;
+
+    public TcpConnectProber(DnsCache dnsCache, AdaptiveTimeoutManager adaptiveTimeoutManager) {
+        this.dnsCache = dnsCache;
+        this.adaptiveTimeoutManager = adaptiveTimeoutManager;
+    }
+
+    /**
+     * 批量探测，返回每个URL的探测结果
+     */
+    public List<HealthCheckResult> probe(List<String> urls) {
+        if (urls.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        List<HealthCheckResult> results = new ArrayList<>(urls.size());
+        Deque<String> pending = new ArrayDeque<>(urls);
+        // 按截止时间排序，已完成的连接在出队时跳过
+        PriorityQueue<PendingConnect> deadlines = new PriorityQueue<>(Comparator.comparingLong(connect -> connect.deadline));
+        int inFlight = 0;
+
+        try (Selector selector = Selector.open()) {
+            while (!pending.isEmpty() || inFlight > 0) {
+                // 补充新的连接直到达到并发上限
+                while (!pending.isEmpty() && inFlight < maxInFlight) {
+                    PendingConnect connect = startConnect(selector, pending.poll(), results);
+                    if (connect != null) {
+                        deadlines.add(connect);
+                        inFlight++;
+                    }
+                }
+                if (inFlight == 0) {
+                    continue;
+                }
+
+                long waitMillis = (deadlines.peek().deadline - System.nanoTime()) / 1_000_000;
+                selector.select(Math.max(1, waitMillis));
+
+                Iterator<SelectionKey> selected = selector.selectedKeys().iterator();
+                while (selected.hasNext()) {
+                    SelectionKey key = selected.next();
+                    selected.remove();
+                    PendingConnect connect = (PendingConnect) key.attachment();
+                    results.add(finishConnect(connect));
+                    connect.done = true;
+                    inFlight--;
+                }
+
+                // 清理已完成的连接，并将超时未完成的连接记为DOWN
+                long now = System.nanoTime();
+                while (!deadlines.isEmpty() && (deadlines.peek().done || now >= deadlines.peek().deadline)) {
+                    PendingConnect connect = deadlines.poll();
+                    if (connect.done) {
+                        continue;
+                    }
+                    close(connect.channel);
+                    connect.done = true;
+                    inFlight--;
+                    results.add(down(connect.url, connect.startTime,
+                            HealthCheckServiceImpl.analyzeConnectionFailure(new SocketTimeoutException(), "connect timed out")));
+                }
+            }
+        } catch (IOException e) {
+            // Selector异常时未完成的URL记为UNKNOWN，避免误剔除
+            logger.error("TCP探测异常: {}", e.getMessage());
+            deadlines.stream().filter(connect -> !connect.done).forEach(connect -> {
+                close(connect.channel);
+                pending.add(connect.url);
+            });
+            pending.forEach(url -> results.add(new HealthCheckResult(url, "UNKNOWN", 0, e.getMessage(), 0, false)));
+        }
+        return results;
+    }
+
+    private PendingConnect startConnect(Selector selector, String url, List<HealthCheckResult> results) {
+        long startTime = System.currentTimeMillis();
+        SocketChannel channel = null;
+        try {
+            URI uri = URI.create(url);
+            int port = uri.getPort() != -1 ? uri.getPort() : ("https".equalsIgnoreCase(uri.getScheme()) ? 443 : 80);
+            if (uri.getHost() == null) {
+                throw new IllegalArgumentException("URL缺少主机: " + url);
+            }
+            // 域名解析走缓存，解析失败时抛出UnknownHostException
+            InetSocketAddress address = new InetSocketAddress(dnsCache.resolve(uri.getHost())[0], port);
+
+            channel = SocketChannel.open();
+            channel.configureBlocking(false);
+            if (channel.connect(address)) {
+                close(channel);
+                results.add(up(url, startTime));
+                return null;
+            }
+            PendingConnect connect = new PendingConnect(url, channel, startTime,
+                    System.nanoTime() + adaptiveTimeoutManager.getConnectTimeout(url) * 1_000_000L);// 按URL自适应连接超时
+            channel.register(selector, SelectionKey.OP_CONNECT, connect);
+            return connect;
+        } catch (IOException | IllegalArgumentException e) {
+            close(channel);
+            results.add(down(url, startTime, HealthCheckServiceImpl.analyzeConnectionFailure(e, e.getMessage())));
+            return null;
+        }
+    }
+
+    private HealthCheckResult finishConnect(PendingConnect connect) {
+        try {
+            if (connect.channel.finishConnect()) {
+                return up(connect.url, connect.startTime);
+            }
+            return down(connect.url, connect.startTime, "连接失败: 握手未完成");
+        } catch (IOException e) {
+            return down(connect.url, connect.startTime, HealthCheckServiceImpl.analyzeConnectionFailure(e, e.getMessage()));
+        } finally {
+            close(connect.channel);
+        }
+    }
+
+    private HealthCheckResult up(String url, long startTime) {
+        return new HealthCheckResult(url, "UP", 0, "TCP连接成功", System.currentTimeMillis() - startTime, false);
+    }
+
+    private HealthCheckResult down(String url, long startTime, String message) {
+        return new HealthCheckResult(url, "DOWN", 0, message, System.currentTimeMillis() - startTime, true);
+    }
+
+    private void close(SocketChannel channel) {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+            // 关闭失败不影响探测结果
+        }
+    }
+
+    private static class PendingConnect {
+        private final String url;
+        private final SocketChannel channel;
+        private final long startTime;
+        private final long deadline; // System.nanoTime()
+        private boolean done;
+
+        PendingConnect(String url, SocketChannel channel, long startTime, long deadline) {
+            this.url = url;
+            this.channel = channel;
+            this.startTime = startTime;
+            this.deadline = deadline;
+        }
+    }
+}
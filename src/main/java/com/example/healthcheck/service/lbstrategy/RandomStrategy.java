@@ -1,5 +1,7 @@
 package com.example.healthcheck.service.lbstrategy;
 
+import com.example.healthcheck.service.SlowStartManager;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.util.List;
@@ -7,10 +9,32 @@ import java.util.concurrent.ThreadLocalRandom;
 
 @Component
 public class RandomStrategy implements LoadBalanceStrategy {
+    private final SlowStartManager slowStartManager;
+
+    @Autowired
+    public RandomStrategy(SlowStartManager slowStartManager) {
+        this.slowStartManager = slowStartManager;
+    }
+
     @Override
     public String chooseUrl(List<String> urls) {
         if (urls.isEmpty()) return null;
-        int idx = ThreadLocalRandom.current().nextInt(urls.size());
-        return urls.get(idx);
+
+        // 按慢启动系数加权随机，无预热URL时等同于均匀随机
+        double[] factors = new double[urls.size()];
+        double total = 0;
+        for (int i = 0; i < urls.size(); i++) {
+            factors[i] = slowStartManager.getWeightFactor(urls.get(i));
+            total += factors[i];
+        }
+
+        double r = ThreadLocalRandom.current().nextDouble(total);
+        for (int i = 0; i < factors.length; i++) {
+            r -= factors[i];
+            if (r < 0) {
+                return urls.get(i);
+            }
+        }
+        return urls.get(urls.size() - 1);
     }
-}
\ No newline at end of file
+}
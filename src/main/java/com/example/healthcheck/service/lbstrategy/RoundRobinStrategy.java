@@ -1,19 +1,44 @@
 package com.example.healthcheck.service.lbstrategy;
 
+import com.example.healthcheck.service.SlowStartManager;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
 
 @Component
 public class RoundRobinStrategy implements LoadBalanceStrategy {
     private final AtomicInteger index = new AtomicInteger(0);
+    private final SlowStartManager slowStartManager;
+
+    @Autowired
+    public RoundRobinStrategy(SlowStartManager slowStartManager) {
+        this.slowStartManager = slowStartManager;
+    }
 
     @Override
     public String chooseUrl(List<String> urls) {
         if (urls.isEmpty()) return null;
-        int idx = index.getAndUpdate(i -> (i + 1) % urls.size());
-        return urls.get(idx);
+        int idx = index.getAndUpdate(i -> (i + 1) % urls.size()) % urls.size();
+
+        // 预热中的URL按权重系数概率命中
+        String url = urls.get(idx);
+        double factor = slowStartManager.getWeightFactor(url);
+        if (factor >= 1.0 || ThreadLocalRandom.current().nextDouble() < factor) {
+            return url;
+        }
+
+        // 未命中的流量在已预热完成的URL间均匀分摊，避免全部顺延到相邻URL
+        List<String> warmedUrls = urls.stream()
+                .filter(candidate -> slowStartManager.getWeightFactor(candidate) >= 1.0)
+                .collect(Collectors.toList());
+        if (warmedUrls.isEmpty()) {
+            return url;
+        }
+        return warmedUrls.get(ThreadLocalRandom.current().nextInt(warmedUrls.size()));
     }
-}
\ No newline at end of file
+}
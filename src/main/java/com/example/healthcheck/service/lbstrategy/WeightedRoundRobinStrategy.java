@@ -1,6 +1,8 @@
 package com.example.healthcheck.service.lbstrategy;
 
 import com.example.healthcheck.service.BankUrlManager;
+import com.example.healthcheck.service.HealthScoreManager;
+import com.example.healthcheck.service.SlowStartManager;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
@@ -11,15 +13,22 @@ import java.util.concurrent.atomic.AtomicInteger;
 
 @Component
 public class WeightedRoundRobinStrategy implements LoadBalanceStrategy {
+    // 权重放大倍数，保证慢启动和健康评分折算后的小数权重仍能区分
+    private static final int WEIGHT_SCALE = 100;
+
     private final BankUrlManager bankUrlManager;
+    private final SlowStartManager slowStartManager;
+    private final HealthScoreManager healthScoreManager;
 
     // 存储每个资方的权重状态
     private final Map<String, Map<String, AtomicInteger>> currentWeights = new ConcurrentHashMap<>();
     private final Map<String, Map<String, AtomicInteger>> effectiveWeights = new ConcurrentHashMap<>();
 
     @Autowired
-    public WeightedRoundRobinStrategy(BankUrlManager bankUrlManager) {
+    public WeightedRoundRobinStrategy(BankUrlManager bankUrlManager, SlowStartManager slowStartManager, HealthScoreManager healthScoreManager) {
         this.bankUrlManager = bankUrlManager;
+        this.slowStartManager = slowStartManager;
+        this.healthScoreManager = healthScoreManager;
     }
 
     @Override
@@ -30,7 +39,7 @@ public class WeightedRoundRobinStrategy implements LoadBalanceStrategy {
         String bankId = bankUrlManager.getBankIdForUrl(urls.get(0));
         if (bankId == null) {
             // 如果没有资方ID，使用简单轮询
-            return new RoundRobinStrategy().chooseUrl(urls);
+            return new RoundRobinStrategy(slowStartManager).chooseUrl(urls);
         }
 
         // 初始化资方的权重状态
@@ -39,6 +48,11 @@ public class WeightedRoundRobinStrategy implements LoadBalanceStrategy {
         Map<String, AtomicInteger> bankCurrentWeights = currentWeights.get(bankId);
         Map<String, AtomicInteger> bankEffectiveWeights = effectiveWeights.get(bankId);
 
+        // 按慢启动进度和健康评分刷新有效权重
+        for (String url : urls) {
+            bankEffectiveWeights.get(url).set(calculateEffectiveWeight(url));
+        }
+
         // 计算总权重
         int totalWeight = urls.stream()
                 .mapToInt(url -> bankEffectiveWeights.get(url).get())
@@ -76,7 +90,12 @@ public class WeightedRoundRobinStrategy implements LoadBalanceStrategy {
         for (String url : urls) {
             bankCurrentWeights.computeIfAbsent(url, k -> new AtomicInteger(0));
             bankEffectiveWeights.computeIfAbsent(url, k ->
-                    new AtomicInteger(bankUrlManager.getUrlWeight(url)));
+                    new AtomicInteger(calculateEffectiveWeight(url)));
         }
     }
+
+    private int calculateEffectiveWeight(String url) {
+        double factor = slowStartManager.getWeightFactor(url) * healthScoreManager.getScore(url);
+        return Math.max(1, (int) Math.round(bankUrlManager.getUrlWeight(url) * WEIGHT_SCALE * factor));
+    }
 }
\ No newline at end of file
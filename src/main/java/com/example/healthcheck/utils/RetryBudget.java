@@ -0,0 +1,55 @@
+package com.example.healthcheck.utils;
+
+import java.util.function.LongSupplier;
+
+/**
+ * 重试/对冲预算：每个请求按比例存入额度，每次重试或对冲消耗1个额度，
+ * 另按每秒最低额度补充，保证低流量时也能重试，故障期间不会成倍放大请求量
+ */
+public class RetryBudget {
+    private static final double EPSILON = 1e-9; // 按比例累加的浮点误差，如10次0.1不足1
+    private final double depositRatio;
+    private final double minPerSecond;
+    private final double maxBalance;
+    private final LongSupplier clock;
+    private double balance;
+    private long lastRefillTime;
+
+    public RetryBudget(double depositRatio, double minPerSecond) {
+        this(depositRatio, minPerSecond, System::currentTimeMillis);
+    }
+
+    RetryBudget(double depositRatio, double minPerSecond, LongSupplier clock) {
+        this.depositRatio = depositRatio;
+        this.clock = clock;
+        this.lastRefillTime = clock.getAsLong();
+        this.minPerSecond = minPerSecond;
+        // 额度上限，避免长时间积累后突发大量重试
+        this.maxBalance = Math.max(10.0, minPerSecond * 10);
+        this.balance = minPerSecond;
+    }
+
+    // 每个原始请求调用一次
+    public synchronized void deposit() {
+        refill();
+        balance = Math.min(maxBalance, balance + depositRatio);
+    }
+
+    public synchronized boolean tryWithdraw() {
+        refill();
+        if (balance >= 1.0 - EPSILON) {
+            balance = Math.max(0, balance - 1.0);
+            return true;
+        }
+        return false;
+    }
+
+    private void refill() {
+        long now = clock.getAsLong();
+        double seconds = (now - lastRefillTime) / 1000.0;
+        lastRefillTime = now;
+        if (balance < maxBalance) {
+            balance = Math.min(maxBalance, balance + seconds * minPerSecond);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.healthcheck.utils;
+
+import java.util.Arrays;
+
+/**
+ * 固定容量的滑动窗口，保留最近N个样本用于计算分位数
+ */
+public class RollingPercentile {
+    private final long[] samples;
+    private int count;
+    private int next;
+
+    public RollingPercentile(int capacity) {
+        this.samples = new long[capacity];
+    }
+
+    public synchronized void record(long value) {
+        samples[next] = value;
+        next = (next + 1) % samples.length;
+        if (count < samples.length) {
+            count++;
+        }
+    }
+
+    public synchronized int size() {
+        return count;
+    }
+
+    /**
+     * 计算平均值，无样本时返回-1
+     */
+    public synchronized double getAverage() {
+        if (count == 0) {
+            return -1;
+        }
+        long sum = 0;
+        for (int i = 0; i < count; i++) {
+            sum += samples[i];
+        }
+        return (double) sum / count;
+    }
+
+    /**
+     * 计算分位数，percentile取值0-100，无样本时返回-1
+     */
+    public long getPercentile(double percentile) {
+        long[] snapshot;
+        synchronized (this) {
+            if (count == 0) {
+                return -1;
+            }
+            snapshot = Arrays.copyOf(samples, count);
+        }
+        Arrays.sort(snapshot);
+        int idx = (int) Math.ceil(percentile / 100.0 * snapshot.length) - 1;
+        return snapshot[Math.max(0, Math.min(idx, snapshot.length - 1))];
+    }
+}
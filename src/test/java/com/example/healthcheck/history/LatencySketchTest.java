@@ -0,0 +1,60 @@
+package com.example.healthcheck.history;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LatencySketchTest {
+
+    @Test
+    void emptySketchHasNoQuantile() {
+        assertEquals(-1, new LatencySketch().quantile(50));
+    }
+
+    @Test
+    void quantileIsWithinBucketError() {
+        Random random = new Random(42);
+        long[] latencies = new long[10000];
+        LatencySketch sketch = new LatencySketch();
+        for (int i = 0; i < latencies.length; i++) {
+            // 对数正态分布，中位数约100毫秒
+            latencies[i] = Math.round(Math.exp(Math.log(100) + random.nextGaussian()));
+            sketch.add(latencies[i]);
+        }
+        Arrays.sort(latencies);
+
+        for (double percentile : new double[]{50, 90, 95, 99}) {
+            long exact = latencies[(int) Math.ceil(percentile / 100.0 * latencies.length) - 1];
+            long estimate = sketch.quantile(percentile);
+            // 返回所在桶的上界：不小于真实值，且不超过真实值的 √2 倍
+            assertTrue(estimate >= exact, percentile + "分位估算值过小: " + estimate + " < " + exact);
+            assertTrue(estimate <= Math.ceil((exact + 1) * Math.sqrt(2)),
+                    percentile + "分位估算值过大: " + estimate + " > " + exact + "×√2");
+        }
+    }
+
+    @Test
+    void mergeAndSerializationKeepCounts() {
+        LatencySketch first = new LatencySketch();
+        LatencySketch second = new LatencySketch();
+        for (int i = 1; i <= 50; i++) {
+            first.add(i);
+            second.add(i * 100);
+        }
+        first.merge(second);
+
+        ByteBuffer buffer = ByteBuffer.allocate(LatencySketch.BYTES);
+        first.write(buffer, 0);
+        LatencySketch decoded = LatencySketch.read(buffer, 0);
+
+        assertEquals(first.quantile(25), decoded.quantile(25));
+        assertEquals(first.quantile(75), decoded.quantile(75));
+        assertTrue(decoded.quantile(25) <= 50);
+        assertTrue(decoded.quantile(75) >= 2500);
+    }
+}
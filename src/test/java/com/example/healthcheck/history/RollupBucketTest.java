@@ -0,0 +1,51 @@
+package com.example.healthcheck.history;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RollupBucketTest {
+
+    @Test
+    void encodeDecodeRoundTrip() {
+        RollupBucket bucket = new RollupBucket(7, 1_700_000_000_000L);
+        bucket.add(12, false);
+        bucket.add(250, true);
+        bucket.add(3, false);
+
+        ByteBuffer buffer = ByteBuffer.allocate(RollupBucket.RECORD_SIZE);
+        bucket.writeBody(buffer, 8);
+        RollupBucket decoded = RollupBucket.readBody(1_700_000_000_000L, buffer, 8);
+
+        assertEquals(7, RollupBucket.readUrlId(buffer, 8));
+        assertEquals(bucket.getUrlId(), decoded.getUrlId());
+        assertEquals(bucket.getBucketStart(), decoded.getBucketStart());
+        assertEquals(3, decoded.getCount());
+        assertEquals(1, decoded.getErrors());
+        assertEquals(3, decoded.getMinLatency());
+        assertEquals(250, decoded.getMaxLatency());
+        assertEquals(265, decoded.getSumLatency());
+        for (double percentile : new double[]{50, 95, 99}) {
+            assertEquals(bucket.getSketch().quantile(percentile), decoded.getSketch().quantile(percentile));
+        }
+    }
+
+    @Test
+    void mergeCombinesStatistics() {
+        RollupBucket first = new RollupBucket(1, 0);
+        first.add(10, false);
+        RollupBucket second = new RollupBucket(1, 0);
+        second.add(5, true);
+        second.add(40, false);
+
+        first.merge(second);
+
+        assertEquals(3, first.getCount());
+        assertEquals(1, first.getErrors());
+        assertEquals(5, first.getMinLatency());
+        assertEquals(40, first.getMaxLatency());
+        assertEquals(55, first.getSumLatency());
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.healthcheck.history;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class SegmentLogTest {
+
+    private static final int RECORD_SIZE = 12; // 时间戳(8) + 值(4)
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void rollsOverWhenSegmentIsFull() throws IOException {
+        long start = millisOf(LocalDate.of(2026, 1, 1));
+        try (SegmentLog log = new SegmentLog(dir, RECORD_SIZE, RECORD_SIZE * 4)) {
+            for (int i = 0; i < 10; i++) {
+                append(log, start + i, i);
+            }
+            assertEquals(3, countSegments());
+            assertEquals(range(0, 10), scanValues(log, start, start + 10));
+        }
+    }
+
+    @Test
+    void continuesLastSegmentAfterReopen() throws IOException {
+        long start = millisOf(LocalDate.of(2026, 1, 1));
+        try (SegmentLog log = new SegmentLog(dir, RECORD_SIZE, RECORD_SIZE * 4)) {
+            for (int i = 0; i < 3; i++) {
+                append(log, start + i, i);
+            }
+        }
+        try (SegmentLog log = new SegmentLog(dir, RECORD_SIZE, RECORD_SIZE * 4)) {
+            for (int i = 3; i < 6; i++) {
+                append(log, start + i, i);
+            }
+            // 重启前的段未写满，继续写入，不会覆盖已有记录
+            assertEquals(2, countSegments());
+            assertEquals(range(0, 6), scanValues(log, start, start + 6));
+        }
+    }
+
+    @Test
+    void scanFindsLateRecordsInNextDaySegment() throws IOException {
+        long yesterday = millisOf(LocalDate.of(2026, 1, 1)) + 1000;
+        long today = millisOf(LocalDate.of(2026, 1, 2)) + 1000;
+        try (SegmentLog log = new SegmentLog(dir, RECORD_SIZE, RECORD_SIZE * 16)) {
+            append(log, yesterday, 1);
+            append(log, today, 2);
+            // 跨天之后到达的前一天记录写入当天的段
+            append(log, yesterday + 1, 3);
+
+            assertEquals(2, countSegments());
+            assertEquals(Arrays.asList(1, 3), scanValues(log, yesterday, yesterday + 10));
+        }
+    }
+
+    @Test
+    void scanAfterReturnsRecordsWrittenAfterPosition() throws IOException {
+        long start = millisOf(LocalDate.of(2026, 1, 1));
+        try (SegmentLog log = new SegmentLog(dir, RECORD_SIZE, RECORD_SIZE * 4)) {
+            assertNull(log.position());
+            for (int i = 0; i < 6; i++) {
+                append(log, start + i, i);
+            }
+            SegmentLog.Position position = log.position();
+            // 跨段写入，且段序号超过9时仍按写入顺序遍历
+            for (int i = 6; i < 50; i++) {
+                append(log, start + i, i);
+            }
+
+            List<Integer> values = new ArrayList<>();
+            log.scanAfter(position, (timestamp, buffer, offset) -> values.add(buffer.getInt(offset)));
+            assertEquals(range(6, 50), values);
+
+            List<Integer> all = new ArrayList<>();
+            log.scanAfter(null, (timestamp, buffer, offset) -> all.add(buffer.getInt(offset)));
+            assertEquals(range(0, 50), all);
+        }
+    }
+
+    private void append(SegmentLog log, long timestamp, int value) throws IOException {
+        log.append(timestamp, (buffer, offset) -> buffer.putInt(offset, value));
+    }
+
+    private List<Integer> scanValues(SegmentLog log, long from, long to) throws IOException {
+        List<Integer> values = new ArrayList<>();
+        log.scan(from, to, (timestamp, buffer, offset) -> values.add(buffer.getInt(offset)));
+        return values;
+    }
+
+    private long countSegments() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.count();
+        }
+    }
+
+    private static List<Integer> range(int from, int to) {
+        List<Integer> values = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            values.add(i);
+        }
+        return values;
+    }
+
+    private static long millisOf(LocalDate day) {
+        return day.atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
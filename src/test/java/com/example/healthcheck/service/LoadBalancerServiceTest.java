@@ -0,0 +1,174 @@
+package com.example.healthcheck.service;
+
+import com.example.healthcheck.config.BankUrlConfig;
+import com.example.healthcheck.dto.BankRoutingSnapshot;
+import com.example.healthcheck.dto.HealthCheckResult;
+import com.example.healthcheck.service.lbstrategy.RandomStrategy;
+import com.example.healthcheck.service.lbstrategy.RoundRobinStrategy;
+import com.example.healthcheck.service.lbstrategy.WeightedRoundRobinStrategy;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LoadBalancerServiceTest {
+
+    private static final String BANK_ID = "1";
+    // 优先级0层4个URL，优先级1层2个URL
+    private static final List<String> PRIMARY = Arrays.asList("http://a0/p", "http://a1/p", "http://a2/p", "http://a3/p");
+    private static final List<String> BACKUP = Arrays.asList("http://b0/p", "http://b1/p");
+
+    private BankUrlManager bankUrlManager;
+    private LoadBalancerService loadBalancerService;
+    private List<String> activeUrls;
+
+    @BeforeEach
+    void setUp() {
+        BankUrlConfig.BankConfig bankConfig = new BankUrlConfig.BankConfig();
+        bankConfig.setBankName("测试资方");
+        PRIMARY.forEach(url -> bankConfig.getUrls().add(urlConfig(url, 0)));
+        BACKUP.forEach(url -> bankConfig.getUrls().add(urlConfig(url, 1)));
+        BankUrlConfig bankUrlConfig = new BankUrlConfig();
+        bankUrlConfig.getConfigs().put(BANK_ID, bankConfig);
+
+        bankUrlManager = new BankUrlManager(bankUrlConfig);
+        SlowStartManager slowStartManager = new SlowStartManager();
+        HealthScoreManager healthScoreManager = new HealthScoreManager(bankUrlManager);
+        loadBalancerService = new LoadBalancerService(bankUrlManager, slowStartManager, healthScoreManager,
+                new RoundRobinStrategy(slowStartManager), new RandomStrategy(slowStartManager),
+                new WeightedRoundRobinStrategy(bankUrlManager, slowStartManager, healthScoreManager));
+        ReflectionTestUtils.setField(loadBalancerService, "strategyType", "round-robin");
+        ReflectionTestUtils.setField(loadBalancerService, "overprovisioningFactor", 1.4);
+        loadBalancerService.initStrategy();
+
+        activeUrls = new ArrayList<>(PRIMARY);
+        activeUrls.addAll(BACKUP);
+    }
+
+    @Test
+    void healthyPrimaryTierTakesAllTraffic() {
+        BankRoutingSnapshot snapshot = update(activeUrls);
+
+        assertLoads(snapshot, 100, 0);
+        assertEquals(PRIMARY, snapshot.getTiers().get(0).getHealthyUrls());
+    }
+
+    @Test
+    void degradedPrimaryTierSpillsOverToNextTier() {
+        // 优先级0层一半健康：健康度 = min(100, 1.4 * 50) = 70，剩余30溢出到下一层
+        BankRoutingSnapshot snapshot = update(Arrays.asList("http://a0/p", "http://a1/p", "http://b0/p", "http://b1/p"));
+
+        assertLoads(snapshot, 70, 30);
+        assertEquals(70, snapshot.getTiers().get(0).getCumulativeLoadPercent(), 1e-9);
+        assertEquals(100, snapshot.getTiers().get(1).getCumulativeLoadPercent(), 1e-9);
+    }
+
+    @Test
+    void tierAboveOverprovisionedThresholdKeepsAllTraffic() {
+        // 3/4健康：1.4 * 75 = 105，截断为100，不溢出
+        BankRoutingSnapshot snapshot = update(Arrays.asList("http://a0/p", "http://a1/p", "http://a2/p", "http://b0/p"));
+
+        assertLoads(snapshot, 100, 0);
+    }
+
+    @Test
+    void totalHealthBelowHundredIsNormalized() {
+        // 优先级0层1/4健康(35)，优先级1层全部不健康(0)，归一后全部流量给优先级0层
+        BankRoutingSnapshot snapshot = update(Collections.singletonList("http://a0/p"));
+
+        assertLoads(snapshot, 100, 0);
+        for (int i = 0; i < 10; i++) {
+            assertEquals("http://a0/p", loadBalancerService.getNextHealthyUrlForBank(BANK_ID));
+        }
+    }
+
+    @Test
+    void selectionFollowsTierLoadPercent() {
+        update(Arrays.asList("http://a0/p", "http://a1/p", "http://b0/p", "http://b1/p"));
+
+        int requests = 20000;
+        long primaryHits = 0;
+        for (int i = 0; i < requests; i++) {
+            if (PRIMARY.contains(loadBalancerService.getNextHealthyUrlForBank(BANK_ID))) {
+                primaryHits++;
+            }
+        }
+        assertEquals(0.70, (double) primaryHits / requests, 0.02);
+    }
+
+    @Test
+    void excludedUrlsFallBackToOtherTiers() {
+        update(activeUrls);
+
+        Set<String> chosen = PRIMARY.stream().collect(Collectors.toSet());
+        String url = loadBalancerService.getNextHealthyUrlForBank(BANK_ID, chosen);
+
+        assertTrue(BACKUP.contains(url));
+    }
+
+    @Test
+    void healthyUrlOutsideConfiguredTiersIsStillRoutable() {
+        // 源URL被IP端点替换后仍在检测列表中，且是唯一健康的URL
+        bankUrlManager.replaceEndpoints("http://a0/p", Collections.singletonList("http://10.0.0.1/p"), "a0");
+
+        BankRoutingSnapshot snapshot = update(Collections.singletonList("http://a0/p"));
+
+        assertEquals(Collections.singletonList("http://a0/p"), snapshot.getHealthyUrls());
+        assertEquals(100, snapshot.getTiers().stream().mapToDouble(BankRoutingSnapshot.PriorityTier::getLoadPercent).sum(), 1e-9);
+        assertEquals("http://a0/p", loadBalancerService.getNextHealthyUrlForBank(BANK_ID));
+    }
+
+    @Test
+    void publishedSnapshotIsReadOnly() {
+        BankRoutingSnapshot snapshot = update(activeUrls);
+
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.getHealthyUrls().clear());
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.getTiers().clear());
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.getTiers().get(0).getHealthyUrls().clear());
+        assertEquals(PRIMARY.size() + BACKUP.size(), loadBalancerService.getRoutingSnapshot(BANK_ID).getHealthyUrls().size());
+    }
+
+    @Test
+    void nonPositiveOverprovisioningFactorIsRejected() {
+        ReflectionTestUtils.setField(loadBalancerService, "overprovisioningFactor", 0.0);
+
+        assertThrows(IllegalArgumentException.class, loadBalancerService::initStrategy);
+    }
+
+    private BankRoutingSnapshot update(List<String> healthyUrls) {
+        Map<String, HealthCheckResult> latestResults = new HashMap<>();
+        activeUrls.forEach(url -> latestResults.put(url, new HealthCheckResult(url,
+                healthyUrls.contains(url) ? "UP" : "DOWN", 0, "", 10, !healthyUrls.contains(url))));
+        loadBalancerService.updateHealthyUrlsForBank(BANK_ID, activeUrls, latestResults);
+        BankRoutingSnapshot snapshot = loadBalancerService.getRoutingSnapshot(BANK_ID);
+        assertNotNull(snapshot);
+        return snapshot;
+    }
+
+    private static void assertLoads(BankRoutingSnapshot snapshot, double... loads) {
+        assertEquals(loads.length, snapshot.getTiers().size());
+        for (int i = 0; i < loads.length; i++) {
+            assertEquals(loads[i], snapshot.getTiers().get(i).getLoadPercent(), 1e-9);
+        }
+    }
+
+    private static BankUrlConfig.UrlConfig urlConfig(String url, int priority) {
+        BankUrlConfig.UrlConfig urlConfig = new BankUrlConfig.UrlConfig();
+        urlConfig.setUrl(url);
+        urlConfig.setPriority(priority);
+        return urlConfig;
+    }
+}
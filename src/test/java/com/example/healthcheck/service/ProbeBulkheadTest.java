@@ -0,0 +1,106 @@
+package com.example.healthcheck.service;
+
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProbeBulkheadTest {
+
+    private static final int CONCURRENCY = 2;
+    private static final int QUEUE_CAPACITY = 3;
+
+    private ProbeBulkhead bulkhead;
+
+    @BeforeEach
+    void setUp() {
+        Registry<ConnectionSocketFactory> registry = RegistryBuilder.<ConnectionSocketFactory>create()
+                .register("http", PlainConnectionSocketFactory.getSocketFactory())
+                .build();
+        bulkhead = new ProbeBulkhead("test", CONCURRENCY, QUEUE_CAPACITY, 10, 10, registry, null);
+    }
+
+    @AfterEach
+    void tearDown() {
+        bulkhead.shutdown();
+    }
+
+    @Test
+    void submitAllRunsEveryTaskWhenRoundExceedsQueueCapacity() throws Exception {
+        int urlCount = 50; // 远超 并发数 + 队列容量
+        Set<Integer> probed = ConcurrentHashMap.newKeySet();
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        List<Runnable> tasks = new ArrayList<>();
+        for (int i = 0; i < urlCount; i++) {
+            int index = i;
+            tasks.add(() -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                sleep(2);
+                probed.add(index);
+                running.decrementAndGet();
+            });
+        }
+
+        bulkhead.submitAll(tasks).get(10, TimeUnit.SECONDS);
+
+        assertEquals(urlCount, probed.size());
+        assertTrue(maxRunning.get() <= CONCURRENCY);
+        assertEquals(0, bulkhead.getMetrics("test").getRejectedProbes());
+    }
+
+    @Test
+    void submitAllCompletesExceptionallyAfterAllTasksWhenOneFails() {
+        AtomicInteger completed = new AtomicInteger();
+        List<Runnable> tasks = new ArrayList<>();
+        tasks.add(() -> {
+            throw new IllegalStateException("probe failed");
+        });
+        for (int i = 0; i < 10; i++) {
+            tasks.add(completed::incrementAndGet);
+        }
+
+        ExecutionException e = assertThrows(ExecutionException.class,
+                () -> bulkhead.submitAll(tasks).get(10, TimeUnit.SECONDS));
+        assertTrue(e.getCause().getMessage().contains("probe failed"));
+        assertEquals(10, completed.get());
+    }
+
+    @Test
+    void submitRejectsTasksBeyondQueueCapacity() {
+        List<Runnable> tasks = new ArrayList<>();
+        for (int i = 0; i < CONCURRENCY + QUEUE_CAPACITY + 5; i++) {
+            tasks.add(() -> sleep(100));
+        }
+        long rejected = tasks.stream()
+                .map(bulkhead::submit)
+                .filter(future -> future.isCompletedExceptionally())
+                .count();
+
+        assertEquals(5, rejected);
+        assertEquals(5, bulkhead.getMetrics("test").getRejectedProbes());
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.example.healthcheck.service.impl;
+
+import com.example.healthcheck.service.BankUrlManager;
+import com.example.healthcheck.service.LoadBalancerService;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.http.impl.client.HttpClients;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BalancedRequestExecutorImplTest {
+
+    private static final String BANK_ID = "1";
+    private static final long SLOW_RESPONSE_MILLIS = 3000;
+
+    private HttpServer server;
+    private ThreadPoolTaskExecutor requestExecutor;
+    private LoadBalancerService loadBalancerService;
+    private BalancedRequestExecutorImpl executor;
+    private String slowUrl;
+    private String fastUrl;
+    private final AtomicInteger fastHits = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/slow", exchange -> {
+            sleep(SLOW_RESPONSE_MILLIS);
+            respond(exchange, "slow");
+        });
+        server.createContext("/fast", exchange -> {
+            fastHits.incrementAndGet();
+            respond(exchange, "fast");
+        });
+        server.start();
+        String base = "http://127.0.0.1:" + server.getAddress().getPort();
+        slowUrl = base + "/slow";
+        fastUrl = base + "/fast";
+
+        requestExecutor = new ThreadPoolTaskExecutor();
+        requestExecutor.setCorePoolSize(4);
+        requestExecutor.setMaxPoolSize(4);
+        requestExecutor.initialize();
+
+        loadBalancerService = mock(LoadBalancerService.class);
+        executor = new BalancedRequestExecutorImpl(loadBalancerService, requestExecutor,
+                HttpClients.createDefault(), mock(BankUrlManager.class));
+        ReflectionTestUtils.setField(executor, "maxRetries", 0);
+        ReflectionTestUtils.setField(executor, "hedgeEnabled", true);
+        ReflectionTestUtils.setField(executor, "hedgePercentile", 95.0);
+        ReflectionTestUtils.setField(executor, "hedgeMinDelay", 10L);
+        ReflectionTestUtils.setField(executor, "retryBudgetRatio", 0.1);
+        ReflectionTestUtils.setField(executor, "hedgeBudgetRatio", 0.05);
+        ReflectionTestUtils.setField(executor, "budgetMinPerSecond", 1.0);
+    }
+
+    @AfterEach
+    void tearDown() {
+        requestExecutor.shutdown();
+        server.stop(0);
+    }
+
+    @Test
+    void noHedgeWhenPrimaryAnswersBeforeHedgeDelay() {
+        when(loadBalancerService.getNextHealthyUrlForBank(eq(BANK_ID), anyCollection())).thenReturn(fastUrl, slowUrl);
+        when(loadBalancerService.getRequestLatencyPercentile(BANK_ID, 95.0)).thenReturn(2000L);
+
+        ResponseEntity<String> response = executor.execute(BANK_ID, HttpMethod.GET, null, String.class, true);
+
+        assertEquals("fast", response.getBody());
+        verify(loadBalancerService, times(1)).getNextHealthyUrlForBank(eq(BANK_ID), anyCollection());
+        assertEquals(1, fastHits.get());
+    }
+
+    @Test
+    void noHedgeWithoutLatencySamples() {
+        when(loadBalancerService.getNextHealthyUrlForBank(eq(BANK_ID), anyCollection())).thenReturn(fastUrl, slowUrl);
+        when(loadBalancerService.getRequestLatencyPercentile(eq(BANK_ID), anyDouble())).thenReturn(-1L);
+
+        executor.execute(BANK_ID, HttpMethod.GET, null, String.class, true);
+
+        verify(loadBalancerService, times(1)).getNextHealthyUrlForBank(eq(BANK_ID), anyCollection());
+    }
+
+    @Test
+    void hedgeWinsAfterDelayAndSlowAttemptIsAborted() throws InterruptedException {
+        when(loadBalancerService.getNextHealthyUrlForBank(eq(BANK_ID), anyCollection())).thenReturn(slowUrl, fastUrl);
+        when(loadBalancerService.getRequestLatencyPercentile(BANK_ID, 95.0)).thenReturn(100L);
+
+        long startTime = System.currentTimeMillis();
+        ResponseEntity<String> response = executor.execute(BANK_ID, HttpMethod.GET, null, String.class, true);
+        long elapsed = System.currentTimeMillis() - startTime;
+
+        assertEquals("fast", response.getBody());
+        assertTrue(elapsed >= 100, "对冲请求不应早于对冲延迟发出: " + elapsed + "ms");
+        assertTrue(elapsed < SLOW_RESPONSE_MILLIS, "应取对冲请求的响应: " + elapsed + "ms");
+        assertEquals(1, fastHits.get());
+
+        // 被淘汰的慢请求连接被中断，执行线程远早于服务端响应就释放
+        long deadline = System.currentTimeMillis() + 1000;
+        while (requestExecutor.getActiveCount() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, requestExecutor.getActiveCount());
+        assertTrue(System.currentTimeMillis() - startTime < SLOW_RESPONSE_MILLIS);
+        // 被中断的请求不计为失败
+        verify(loadBalancerService, never()).recordRequestResult(eq(slowUrl), anyLong(), eq(false));
+        verify(loadBalancerService).recordRequestResult(eq(fastUrl), anyLong(), eq(true));
+    }
+
+    @Test
+    void nonIdempotentRequestIsNeverHedged() {
+        when(loadBalancerService.getNextHealthyUrlForBank(eq(BANK_ID), anyCollection())).thenReturn(slowUrl, fastUrl);
+        when(loadBalancerService.getRequestLatencyPercentile(BANK_ID, 95.0)).thenReturn(100L);
+        server.removeContext("/slow");
+        server.createContext("/slow", exchange -> {
+            sleep(300);
+            respond(exchange, "slow");
+        });
+
+        ResponseEntity<String> response = executor.execute(BANK_ID, HttpMethod.POST, null, String.class, false);
+
+        assertEquals("slow", response.getBody());
+        assertEquals(0, fastHits.get());
+    }
+
+    private static void respond(com.sun.net.httpserver.HttpExchange exchange, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
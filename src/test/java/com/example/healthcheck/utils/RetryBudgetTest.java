@@ -0,0 +1,71 @@
+package com.example.healthcheck.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RetryBudgetTest {
+
+    private final AtomicLong now = new AtomicLong(1_000_000L);
+
+    @Test
+    void startsWithOneSecondOfMinimumBudget() {
+        RetryBudget budget = new RetryBudget(0.1, 1, now::get);
+
+        assertTrue(budget.tryWithdraw());
+        assertFalse(budget.tryWithdraw());
+    }
+
+    @Test
+    void depositsAccumulatePerRequest() {
+        RetryBudget budget = new RetryBudget(0.1, 1, now::get);
+        assertTrue(budget.tryWithdraw());
+
+        // 每个请求存入0.1，10个请求换1次重试
+        for (int i = 0; i < 9; i++) {
+            budget.deposit();
+        }
+        assertFalse(budget.tryWithdraw());
+        budget.deposit();
+        assertTrue(budget.tryWithdraw());
+        assertFalse(budget.tryWithdraw());
+    }
+
+    @Test
+    void refillsByMinimumPerSecondAfterExhaustion() {
+        RetryBudget budget = new RetryBudget(0.1, 2, now::get);
+        assertEquals(2, drain(budget));
+
+        now.addAndGet(500);
+        assertEquals(1, drain(budget));
+
+        now.addAndGet(1500);
+        assertEquals(3, drain(budget));
+    }
+
+    @Test
+    void balanceIsCappedAfterLongIdlePeriod() {
+        RetryBudget budget = new RetryBudget(0.1, 1, now::get);
+        drain(budget);
+
+        now.addAndGet(3_600_000L);
+        for (int i = 0; i < 1000; i++) {
+            budget.deposit();
+        }
+
+        // 上限为 max(10, 每秒最低额度 * 10)
+        assertEquals(10, drain(budget));
+    }
+
+    private static int drain(RetryBudget budget) {
+        int withdrawn = 0;
+        while (budget.tryWithdraw()) {
+            withdrawn++;
+        }
+        return withdrawn;
+    }
+}